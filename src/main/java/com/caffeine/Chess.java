@@ -6,13 +6,19 @@ package com.caffeine;
  */
 public class Chess {
 
+    public static com.caffeine.engine.EnginePool engines;
     public static com.caffeine.engine.Core engine;
     public static com.caffeine.logic.Game game;
+    public static com.caffeine.logic.GameListener listener;
     public static com.caffeine.view.Core view;
 
     public static void main(String[] args) {
-        engine = new com.caffeine.engine.Core();
-        game = new com.caffeine.logic.Game();
+        // The window plays one game at a time, and holds its lease for good
+        engines = new com.caffeine.engine.EnginePool(1);
+        engine = engines.lease();
+        // Only the game on screen reports to the window
+        listener = new com.caffeine.view.GameViewListener();
+        game = new com.caffeine.logic.Game(engine, listener);
         view = new com.caffeine.view.Core();
     }
 }
@@ -0,0 +1,115 @@
+package com.caffeine;
+
+import com.caffeine.engine.Core;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ *  What the tools that play games without the window share: reading
+ *  "--name value" options, and playing a batch of games on a pool of
+ *  threads. Each thread owns its own uncached engines and plays its share
+ *  of the games one after another.
+ */
+final class Headless {
+
+    /**
+     *  Plays one game of a batch.
+     */
+    interface GamePlayer {
+        /**
+         *  @param engines The engines to play with, owned by this thread
+         *  @param n       The game number, from 0
+         */
+        void play(Core[] engines, int n);
+    }
+
+    private Headless() {}
+
+    /**
+     *  Reads "--name value" pairs over the defaults given. An unknown name
+     *  ends the program.
+     *
+     *  @param args    The command line
+     *  @param options Every option's default value by name, without the
+     *                 "--"; replaced by the values given
+     */
+    static void parseOptions(String[] args, Map<String, String> options) {
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String name = args[i].startsWith("--") ? args[i].substring(2) : "";
+            if (!options.containsKey(name)) {
+                exit("Unknown option: " + args[i]);
+            }
+            options.put(name, args[i + 1]);
+        }
+    }
+
+    /**
+     *  @param  path Where games are saved
+     *  @return the directory, created if needed; the program ends if it
+     *          cannot be
+     */
+    static File directory(String path) {
+        File out = new File(path);
+        if (!out.isDirectory() && !out.mkdirs()) {
+            exit("Unable to create " + out);
+        }
+        return out;
+    }
+
+    /**
+     *  Prints a usage error and ends the program.
+     *
+     *  @param message What was wrong
+     */
+    static void exit(String message) {
+        System.err.println(message);
+        System.exit(2);
+    }
+
+    /**
+     *  Plays every game of a batch.
+     *
+     *  @param  games   How many games to play
+     *  @param  threads How many games to play at once
+     *  @param  engines How many engines each thread needs, e.g. one per
+     *                  player so that they share no hash table
+     *  @param  player  Plays one game
+     *  @return the wall time taken, in nanoseconds
+     */
+    static long playAll(int games, int threads, int engines, GamePlayer player) throws Exception {
+        AtomicInteger nextGame = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<?>> workers = new ArrayList<Future<?>>();
+        long start = System.nanoTime();
+        for (int i = 0; i < threads; i++) {
+            workers.add(pool.submit(() -> {
+                Core[] owned = new Core[engines];
+                try {
+                    for (int e = 0; e < engines; e++) {
+                        owned[e] = Core.withoutCache();
+                    }
+                    for (int n = nextGame.getAndIncrement(); n < games; n = nextGame.getAndIncrement()) {
+                        player.play(owned, n);
+                    }
+                } finally {
+                    for (Core engine : owned) {
+                        if (engine != null) engine.quit();
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> worker : workers) {
+            worker.get();
+        }
+        pool.shutdown();
+        return System.nanoTime() - start;
+    }
+}
@@ -0,0 +1,147 @@
+package com.caffeine;
+
+import com.caffeine.engine.Core;
+import com.caffeine.logic.FileManager;
+import com.caffeine.logic.Game;
+import com.caffeine.logic.GameListener;
+import com.caffeine.logic.GameStatus;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ *  Plays the CPU against itself without the window, to soak-test a CPU mode
+ *  and measure how fast games run. Every finished game is saved as a PGN
+ *  file.
+ *
+ *  Usage: SelfPlay [--games N] [--threads T] [--mode easy|medium|hard]
+ *                  [--random-plies K] [--max-plies M] [--seed S] [--out DIR]
+ *
+ *  The first K plies of each game are random legal moves, so that games
+ *  differ. A game still going after M plies is stopped and counted as
+ *  unfinished.
+ */
+public class SelfPlay {
+
+    private static final String[] RESULTS = {
+        "unfinished", "white wins", "black wins", "stalemate", "draw"
+    };
+
+    private final int games;
+    private final String mode;
+    private final int randomPlies;
+    private final int maxPlies;
+    private final long seed;
+    private final File out;
+
+    // Totals over every thread
+    private final AtomicLong plies = new AtomicLong();
+    private final AtomicLong cpuMoves = new AtomicLong();
+    private final AtomicLong thinkNanos = new AtomicLong();
+    private final AtomicInteger[] results = new AtomicInteger[RESULTS.length];
+
+    public SelfPlay(int games, String mode, int randomPlies, int maxPlies, long seed, File out) {
+        this.games = games;
+        this.mode = mode;
+        this.randomPlies = randomPlies;
+        this.maxPlies = maxPlies;
+        this.seed = seed;
+        this.out = out;
+        for (int i = 0; i < results.length; i++) {
+            results[i] = new AtomicInteger();
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<String, String>();
+        options.put("games", "10");
+        options.put("threads", Integer.toString(Runtime.getRuntime().availableProcessors()));
+        options.put("mode", "easy");
+        options.put("random-plies", "4");
+        options.put("max-plies", "400");
+        options.put("seed", Long.toString(System.nanoTime()));
+        options.put("out", "SelfPlay");
+        Headless.parseOptions(args, options);
+
+        int threads = Integer.parseInt(options.get("threads"));
+        SelfPlay selfPlay = new SelfPlay(Integer.parseInt(options.get("games")), options.get("mode"),
+            Integer.parseInt(options.get("random-plies")), Integer.parseInt(options.get("max-plies")),
+            Long.parseLong(options.get("seed")), Headless.directory(options.get("out")));
+        long elapsed = selfPlay.run(threads);
+        selfPlay.report(threads, elapsed);
+        System.exit(0);
+    }
+
+    /**
+     *  Plays every game.
+     *
+     *  @param  threads How many games to play at once
+     *  @return the wall time taken, in nanoseconds
+     */
+    public long run(int threads) throws Exception {
+        // Both sides play the same mode, so they may share an engine
+        return Headless.playAll(games, threads, 1, (engines, n) -> play(engines[0], n));
+    }
+
+    /**
+     *  Plays one game to its end, or to the ply limit, and saves it.
+     *
+     *  @param engine The engine playing both sides
+     *  @param n      The game number, from 0
+     */
+    private void play(Core engine, int n) {
+        Random random = new Random(seed + n);
+        Game game = new Game(engine, GameListener.NONE);
+        game.setMode(mode);
+        game.setTag("Event", "Self-play");
+        game.setTag("Round", Integer.toString(n + 1));
+        game.setTag("White", "CPU (" + game.getMode() + ")");
+        game.setTag("Black", "CPU (" + game.getMode() + ")");
+        game.startGame();
+
+        int ply = 0;
+        for (; ply < maxPlies && game.getGameEndStatus() == GameStatus.ONGOING; ply++) {
+            if (ply < randomPlies) {
+                List<String> moves = game.getLegalMoves();
+                game.move(moves.get(random.nextInt(moves.size())));
+                continue;
+            }
+            long start = System.nanoTime();
+            String move = game.cpuMove();
+            thinkNanos.addAndGet(System.nanoTime() - start);
+            if (move == null) break;
+            cpuMoves.incrementAndGet();
+        }
+        int result = game.getGameEndStatus();
+        if (result != GameStatus.ONGOING) game.endGame(result);
+        plies.addAndGet(game.moveHistory.size());
+        results[result].incrementAndGet();
+
+        File pgn = new File(out, String.format("selfplay-%05d.pgn", n + 1));
+        if (!FileManager.save(game, pgn)) {
+            System.err.println("Unable to save " + pgn);
+        }
+    }
+
+    /**
+     *  Prints throughput and how the games ended.
+     */
+    private void report(int threads, long elapsed) {
+        double seconds = elapsed / 1e9;
+        System.out.println(String.format("%d games, mode %s, %d threads, %.1f s",
+            games, mode, threads, seconds));
+        System.out.println(String.format("  %.2f games/sec  %.1f plies/sec",
+            games / seconds, plies.get() / seconds));
+        System.out.println(String.format("  average think time %.2f ms over %,d CPU moves",
+            cpuMoves.get() == 0 ? 0.0 : thinkNanos.get() / 1e6 / cpuMoves.get(), cpuMoves.get()));
+        for (int i = 0; i < RESULTS.length; i++) {
+            System.out.println(String.format("  %-10s %5d  %5.1f%%",
+                RESULTS[i], results[i].get(), games == 0 ? 0.0 : 100.0 * results[i].get() / games));
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package com.caffeine;
+
+import com.caffeine.engine.Core;
+import com.caffeine.engine.SearchLimit;
+import com.caffeine.logic.Elo;
+import com.caffeine.logic.FileManager;
+import com.caffeine.logic.Game;
+import com.caffeine.logic.GameListener;
+import com.caffeine.logic.GameStatus;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ *  Plays CPU configurations against each other in a round robin, without
+ *  the window, and estimates their Elo ratings. Use it to check that the
+ *  modes really differ in strength, and to find the cheapest search limit
+ *  that keeps them apart.
+ *
+ *  Usage: Tournament [--players LIST] [--rounds N] [--threads T]
+ *                    [--random-plies K] [--max-plies M] [--seed S] [--out DIR]
+ *
+ *  LIST is a comma separated list of "easy", "medium", "hard" or custom
+ *  players written name=ms or name=limit, with the limit in SearchLimit's
+ *  text form and + for spaces, e.g. "easy,hard,fast=50,d6=depth+6+skill+8".
+ *  Every pair plays N games (rounded up to even): each random opening of
+ *  K plies is played twice with colors swapped. Games still going after M
+ *  plies are scored as draws. With --out, every game is saved there as a
+ *  PGN file. Each side searches with its own engine, so neither reads what
+ *  the other's searches left in the hash table.
+ */
+public class Tournament {
+
+    private static final String[] MODE_NAMES = {"easy", "medium", "hard"};
+
+    private final String[] names;
+    private final SearchLimit[] limits;
+    private final int rounds;
+    private final int randomPlies;
+    private final int maxPlies;
+    private final long seed;
+    private final File out;
+
+    // Results by [player][opponent]; a game counts once for each side
+    private final int[][] wins;
+    private final int[][] draws;
+    private final int[][] losses;
+    private int adjudicated = 0;
+
+    private final List<int[]> schedule = new ArrayList<int[]>(); // {white, black, opening}
+
+    public Tournament(String[] names, SearchLimit[] limits, int rounds, int randomPlies,
+                      int maxPlies, long seed, File out) {
+        this.names = names;
+        this.limits = limits;
+        this.rounds = rounds + (rounds % 2);
+        this.randomPlies = randomPlies;
+        this.maxPlies = maxPlies;
+        this.seed = seed;
+        this.out = out;
+        int players = names.length;
+        wins = new int[players][players];
+        draws = new int[players][players];
+        losses = new int[players][players];
+
+        int opening = 0;
+        for (int a = 0; a < players; a++) {
+            for (int b = a + 1; b < players; b++) {
+                for (int k = 0; k < this.rounds; k += 2) {
+                    schedule.add(new int[]{a, b, opening});
+                    schedule.add(new int[]{b, a, opening});
+                    opening++;
+                }
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<String, String>();
+        options.put("players", "easy,medium,hard");
+        options.put("rounds", "20");
+        options.put("threads", Integer.toString(Runtime.getRuntime().availableProcessors()));
+        options.put("random-plies", "4");
+        options.put("max-plies", "400");
+        options.put("seed", Long.toString(System.nanoTime()));
+        options.put("out", null);
+        Headless.parseOptions(args, options);
+
+        String[] specs = options.get("players").split(",");
+        String[] names = new String[specs.length];
+        SearchLimit[] limits = new SearchLimit[specs.length];
+        for (int i = 0; i < specs.length; i++) {
+            String spec = specs[i].trim();
+            int mode = Arrays.asList(MODE_NAMES).indexOf(spec.toLowerCase());
+            if (mode >= 0) {
+                names[i] = spec;
+                limits[i] = Game.getDefaultModeLimit(mode);
+            } else if (spec.contains("=")) {
+                names[i] = spec.substring(0, spec.indexOf('='));
+                String limit = spec.substring(spec.indexOf('=') + 1).replace('+', ' ');
+                try {
+                    limits[i] = limit.matches("\\d+")
+                        ? SearchLimit.movetime(Integer.parseInt(limit))
+                        : SearchLimit.parse(limit);
+                } catch (IllegalArgumentException e) {
+                    Headless.exit("Unknown player: " + spec);
+                }
+            } else {
+                Headless.exit("Unknown player: " + spec);
+            }
+        }
+        if (names.length < 2) {
+            Headless.exit("A tournament needs at least two players");
+        }
+
+        int threads = Integer.parseInt(options.get("threads"));
+        File out = (options.get("out") == null) ? null : Headless.directory(options.get("out"));
+        Tournament tournament = new Tournament(names, limits, Integer.parseInt(options.get("rounds")),
+            Integer.parseInt(options.get("random-plies")), Integer.parseInt(options.get("max-plies")),
+            Long.parseLong(options.get("seed")), out);
+        long elapsed = tournament.run(threads);
+        tournament.report(threads, elapsed);
+        System.exit(0);
+    }
+
+    /**
+     *  Plays every scheduled game.
+     *
+     *  @param  threads How many games to play at once
+     *  @return the wall time taken, in nanoseconds
+     */
+    public long run(int threads) throws Exception {
+        return Headless.playAll(schedule.size(), threads, 2, this::play);
+    }
+
+    /**
+     *  Plays one scheduled game and records its result.
+     *
+     *  @param engines The engines playing white and black; the game keeps
+     *                 white's, and black's follows every move
+     *  @param n       The index into the schedule
+     */
+    private void play(Core[] engines, int n) {
+        int white = schedule.get(n)[0];
+        int black = schedule.get(n)[1];
+        // Both games of a pair share an opening
+        Random random = new Random(seed + schedule.get(n)[2]);
+
+        Game game = new Game(engines[0], GameListener.NONE);
+        Core blackEngine = engines[1];
+        blackEngine.newGame();
+        game.setTag("Event", "Tournament");
+        game.setTag("Round", Integer.toString(n + 1));
+        game.setTag("White", names[white] + " (" + limits[white] + ")");
+        game.setTag("Black", names[black] + " (" + limits[black] + ")");
+        game.startGame();
+
+        for (int ply = 0; ply < maxPlies && game.getGameEndStatus() == GameStatus.ONGOING; ply++) {
+            String move;
+            if (ply < randomPlies) {
+                List<String> moves = game.getLegalMoves();
+                move = moves.get(random.nextInt(moves.size()));
+                game.move(move);
+                blackEngine.move(move);
+            } else if (game.whiteActive()) {
+                move = game.cpuMove(limits[white]);
+                if (move == null) break;
+                blackEngine.move(move);
+            } else {
+                move = blackEngine.cpuMove(limits[black]);
+                if (move.equals("(none)") || !game.move(move)) break;
+            }
+        }
+        int result = game.getGameEndStatus();
+        if (result != GameStatus.ONGOING) game.endGame(result);
+        record(white, black, result);
+
+        if (out != null) {
+            File pgn = new File(out, String.format("tournament-%05d.pgn", n + 1));
+            if (!FileManager.save(game, pgn)) {
+                System.err.println("Unable to save " + pgn);
+            }
+        }
+    }
+
+    private synchronized void record(int white, int black, int result) {
+        if (result == GameStatus.WHITE_WINS) {
+            wins[white][black]++;
+            losses[black][white]++;
+        } else if (result == GameStatus.BLACK_WINS) {
+            wins[black][white]++;
+            losses[white][black]++;
+        } else {
+            if (result == GameStatus.ONGOING) adjudicated++;
+            draws[white][black]++;
+            draws[black][white]++;
+        }
+    }
+
+    /**
+     *  Prints the ratings and every pairing's result.
+     */
+    private synchronized void report(int threads, long elapsed) {
+        int players = names.length;
+        double[][] points = new double[players][players];
+        int[][] games = new int[players][players];
+        for (int i = 0; i < players; i++) {
+            for (int j = 0; j < players; j++) {
+                points[i][j] = wins[i][j] + 0.5 * draws[i][j];
+                games[i][j] = wins[i][j] + draws[i][j] + losses[i][j];
+            }
+        }
+        double[] ratings = Elo.ratings(points, games);
+
+        System.out.println(String.format("%d games, %d threads, %.1f s, %d scored as draws at %d plies",
+            schedule.size(), threads, elapsed / 1e9, adjudicated, maxPlies));
+        System.out.println(String.format("  %-12s %-24s %6s %7s %8s %9s",
+            "player", "limit", "games", "score", "elo", "95%"));
+        for (int i = 0; i < players; i++) {
+            int w = 0, d = 0, l = 0;
+            for (int j = 0; j < players; j++) {
+                w += wins[i][j];
+                d += draws[i][j];
+                l += losses[i][j];
+            }
+            double[] interval = Elo.interval(w, d, l);
+            System.out.println(String.format("  %-12s %-24s %6d %6.1f%% %+8.0f %9s",
+                names[i], limits[i], w + d + l, 100.0 * (w + 0.5 * d) / Math.max(1, w + d + l),
+                ratings[i], margin(interval)));
+        }
+        System.out.println();
+        for (int i = 0; i < players; i++) {
+            for (int j = i + 1; j < players; j++) {
+                double[] interval = Elo.interval(wins[i][j], draws[i][j], losses[i][j]);
+                System.out.println(String.format("  %s vs %s: +%d =%d -%d  elo %s [%s, %s]",
+                    names[i], names[j], wins[i][j], draws[i][j], losses[i][j],
+                    format(interval[1]), format(interval[0]), format(interval[2])));
+            }
+        }
+    }
+
+    private static String margin(double[] interval) {
+        double half = (interval[2] - interval[0]) / 2;
+        return Double.isFinite(half) ? String.format("+/-%.0f", half) : "inf";
+    }
+
+    private static String format(double elo) {
+        if (Double.isInfinite(elo)) return (elo > 0) ? "+inf" : "-inf";
+        return String.format("%+.0f", elo);
+    }
+}
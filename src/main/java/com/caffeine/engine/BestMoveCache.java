@@ -0,0 +1,117 @@
+package com.caffeine.engine;
+
+// First-Party Imports
+import java.util.*;
+
+/**
+ *  Remembers search results by position key and search limit, so a
+ *  position searched moments ago (after an undo, a reload or a repeated
+ *  end-of-game check) is answered without searching again. The least
+ *  recently used results are dropped once the cache is over its entry or
+ *  byte cap. Safe to share between engines.
+ */
+public class BestMoveCache {
+
+    public static final int DEFAULT_MAX_ENTRIES = 1024;
+
+    private static final class Key {
+        final long position;
+        final String limit;
+
+        Key(long position, String limit){
+            this.position = position;
+            this.limit = limit;
+        }
+
+        @Override
+        public boolean equals(Object other){
+            if (!(other instanceof Key)){ return false; }
+            Key key = (Key) other;
+            return position == key.position && limit.equals(key.limit);
+        }
+
+        @Override
+        public int hashCode(){
+            return (int) (position ^ (position >>> 32)) * 31 + limit.hashCode();
+        }
+    }
+
+    private final int maxEntries;
+    private final long maxBytes;
+    private long bytes = 0;
+    private long hits = 0;
+    private long misses = 0;
+
+    private final LinkedHashMap<Key, SearchResult> results =
+        new LinkedHashMap<Key, SearchResult>(16, 0.75f, true);
+
+    public BestMoveCache(){
+        this(DEFAULT_MAX_ENTRIES, 0);
+    }
+
+    /**
+     *  @param  maxEntries The most results to keep, or 0 for no entry cap
+     *  @param  maxBytes   The most estimated bytes to keep, or 0 for no byte cap
+     */
+    public BestMoveCache(int maxEntries, long maxBytes){
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     *  Looks up an earlier search, counting a hit or a miss.
+     *  @param  position The Zobrist key of the position searched
+     *  @param  limit    The search limit as sent after "go", e.g. "movetime 500"
+     *  @return the earlier result, or null if there is none
+     */
+    public synchronized SearchResult get(long position, String limit){
+        SearchResult result = results.get(new Key(position, limit));
+        if (result == null){ misses++; }
+        else { hits++; }
+        return result;
+    }
+
+    /**
+     *  Stores a search result, dropping the least recently used ones if
+     *  the cache grows past its caps.
+     *  @param  position The Zobrist key of the position searched
+     *  @param  limit    The search limit as sent after "go", e.g. "movetime 500"
+     *  @param  result   What the search found
+     */
+    public synchronized void put(long position, String limit, SearchResult result){
+        SearchResult old = results.put(new Key(position, limit), result);
+        if (old != null){ bytes -= old.estimatedBytes(); }
+        bytes += result.estimatedBytes();
+
+        Iterator<SearchResult> eldest = results.values().iterator();
+        while (eldest.hasNext() && ((maxEntries > 0 && results.size() > maxEntries)
+                                    || (maxBytes > 0 && bytes > maxBytes))){
+            bytes -= eldest.next().estimatedBytes();
+            eldest.remove();
+        }
+    }
+
+    public synchronized void clear(){
+        results.clear();
+        bytes = 0;
+    }
+
+    public synchronized int size(){
+        return results.size();
+    }
+
+    /**
+     *  @return the estimated bytes held by the cached results
+     */
+    public synchronized long byteCount(){
+        return bytes;
+    }
+
+    public synchronized long getHits(){
+        return hits;
+    }
+
+    public synchronized long getMisses(){
+        return misses;
+    }
+}
@@ -0,0 +1,48 @@
+package com.caffeine.engine;
+
+// First-Party Imports
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ *  UCI commands sent to Stockfish together. Core.send() writes them all
+ *  at once, followed by a single "isready", and waits for the "readyok"
+ *  that ends their output: one round trip for the whole batch. A search
+ *  goes on after "readyok", so "go" cannot be batched, nor can "quit".
+ */
+public final class CommandBatch {
+
+    private final ArrayList<String> commands = new ArrayList<String>();
+
+    /**
+     *  @param  commands The first commands of the batch, in order
+     *  @throws IllegalArgumentException if a command cannot be batched
+     */
+    public CommandBatch(String... commands){
+        for (String command : commands){ add(command); }
+    }
+
+    /**
+     *  Adds a command after those already in the batch.
+     *  @param  command The UCI command, e.g. "position startpos moves e2e4"
+     *  @return this batch
+     *  @throws IllegalArgumentException if the command cannot be batched
+     */
+    public CommandBatch add(String command){
+        String name = command.trim().split("\\s+", 2)[0];
+        if (name.isEmpty() || name.equals("go") || name.equals("quit")){
+            throw new IllegalArgumentException("Not a batchable command: " + command);
+        }
+        commands.add(command.trim());
+        return this;
+    }
+
+    public List<String> getCommands(){
+        return Collections.unmodifiableList(commands);
+    }
+
+    public int size(){
+        return commands.size();
+    }
+}
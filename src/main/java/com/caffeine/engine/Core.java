@@ -2,51 +2,598 @@ package com.caffeine.engine;
 
 // First-Party Imports
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
 import java.lang.Thread;
 
 // Third-Party Imports
 import org.apache.commons.lang3.CharUtils;
 import org.apache.commons.lang3.StringUtils;
-import com.jwarner.jockfish.JockfishEngine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 // Local Imports
+import com.caffeine.logic.Move;
+import com.caffeine.logic.Position;
 import com.caffeine.logic.Utils;
 
 public class Core{
 
-    private JockfishEngine jockfish;
+    private static final Logger log = LoggerFactory.getLogger(Core.class);
+
+    private volatile StockfishProcess stockfish;
+
+    // Engine output, drained line by line by a dedicated reader thread.
+    // Each line is tagged with the request it answers: the oldest one still
+    // waiting that takes that kind of line, or 0 if none does. A restarted
+    // engine gets a new ring and reader.
+    private static final int OUTPUT_CAPACITY = 4096;
+    private static final long DEAD = -1; // tag of the line left by a reader whose engine exited
+    private volatile LineRing output;
+    private volatile ConcurrentLinkedQueue<Request> awaiting;
+    private long nextRequest = 1;
+    private long currentRequest = 0; // the request whose reply is being read
+
+    // Commands with no reply of their own, such as "position" and
+    // "setoption", held back to go out in the same write as the next
+    // command that has one. Every method that holds commands back writes
+    // them before it returns.
+    private final StringBuilder batched = new StringBuilder();
+    private String currentLastLine = "readyok";
+    private volatile boolean closed = false;
+
+    // Deadlines: a reply must come within replyMillis, or for a search
+    // within its own time plus replyMillis. A search with neither movetime
+    // nor clock gets searchMillis. A search past its deadline is told to
+    // "stop"; anything still silent after that has its engine restarted.
+    public static final long DEFAULT_REPLY_MILLIS = 5000;
+    public static final long DEFAULT_SEARCH_MILLIS = 60000;
+    private static final long STOP_GRACE_MILLIS = 1000;
+    private long replyMillis = DEFAULT_REPLY_MILLIS;
+    private long searchMillis = DEFAULT_SEARCH_MILLIS;
+    private long deadline = 0;      // System.nanoTime() the reply is due by, or 0 for none
+    private boolean stopSent = false;
+    private int restarts = 0;
+
+    // Checks every second that each engine's process is still running, so
+    // one that exits while idle or pondering is restarted before next use
+    private static final ScheduledExecutorService watchdog =
+        Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "engine-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+    private volatile boolean dead = false;
+    private final ScheduledFuture<?> watch;
+
+    private static final class Request {
+        final long id;
+        final String lastLine; // the start of the line ending the reply
+
+        Request(long id, String lastLine){
+            this.id = id;
+            this.lastLine = lastLine;
+        }
+
+        /**
+         *  Whether a line can be part of this reply: "info" and "bestmove"
+         *  answer searches, "id" and "option" answer "uci", and anything
+         *  else answers a query ended by "readyok".
+         */
+        boolean accepts(String line){
+            boolean searchLine = line.startsWith("info") || line.startsWith("bestmove");
+            if (lastLine.equals("bestmove")){ return searchLine; }
+            if (lastLine.equals("uciok")){
+                return line.startsWith("id ") || line.startsWith("option ") || line.equals("uciok");
+            }
+            return !searchLine;
+        }
+    }
+
+    // Asynchronous requests run here one at a time, in the order made
+    private final ExecutorService requests;
+    private final Set<CompletableFuture<?>> pending = ConcurrentHashMap.newKeySet();
+
+    private static final String START_FEN =
+        "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    // Local copy of Stockfish's board: the root it was given and the moves
+    // played since. Stockfish is told about moves but never asked for the
+    // board unless this copy is lost (synced is false).
+    private final Position position = new Position(START_FEN);
+    private String rootFEN = START_FEN;
+    private final ArrayList<String> moveList = new ArrayList<String>();
+    private int[] moveCodes = new int[64]; // moveList as encoded by Position
+    private boolean synced = true;
+
+    // True when moves were made locally but not yet sent to Stockfish
+    private boolean engineBehind = false;
+
+    // Cross-checks every board read against Stockfish's own "d" output
+    private boolean debug = Boolean.getBoolean("caffeine.engine.debug");
+
+    // Earlier search results (null if searches are never cached), and a
+    // count of "stop"s so that searches cut short are never cached or played
+    private final BestMoveCache bestMoveCache;
+    private final Object stopLock = new Object();
+    private long stops = 0;
+
+    // Strength settings last sent to Stockfish, and the options it offers
+    // (read on first need)
+    private int skillLevel = SearchLimit.FULL_SKILL;
+    private int elo = 0;
+    private Set<String> options = null;
+
+    // Pondering: after the CPU moves, Stockfish searches on the reply it
+    // expects while the user thinks. On a hit that search carries on as
+    // the CPU's next one; on a miss it is stopped and thrown away.
+    private boolean ponderEnabled = Boolean.getBoolean("caffeine.engine.ponder");
+    private String ponderMove = null;   // the expected reply while pondering
+    private boolean ponderHit = false;  // true once the user played it
+    private SearchLimit ponderLimit = null;
 
     public Core(){
-        jockfish = new JockfishEngine();
+        this(new BestMoveCache());
+    }
+
+    /**
+     *  An engine that searches every time it is asked, even a board it has
+     *  searched before, so that think times are what the limits say.
+     *  @return the new engine
+     */
+    public static Core withoutCache(){
+        return new Core(null);
+    }
+
+    /**
+     *  @param  bestMoveCache Where to remember search results; engines may
+     *                        share one. Null to search every time.
+     */
+    public Core(BestMoveCache bestMoveCache){
+        this.bestMoveCache = bestMoveCache;
+        start();
+
+        requests = Executors.newSingleThreadExecutor(task -> {
+            Thread worker = new Thread(task, "engine-requests");
+            worker.setDaemon(true);
+            return worker;
+        });
+        watch = watchdog.scheduleWithFixedDelay(() -> {
+            if (dead && !closed){ requests.execute(this::restartIfDead); }
+        }, 1, 1, TimeUnit.SECONDS);
+    }
+
+    /**
+     *  Starts a Stockfish process, with its own output ring and reader.
+     */
+    private void start(){
+        StockfishProcess engine = new StockfishProcess();
+        LineRing ring = new LineRing(OUTPUT_CAPACITY);
+        ConcurrentLinkedQueue<Request> queue = new ConcurrentLinkedQueue<Request>();
+        stockfish = engine;
+        output = ring;
+        awaiting = queue;
+        dead = false;
+
+        Thread reader = new Thread(() -> readOutput(engine, ring, queue), "engine-reader");
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    /**
+     *  Body of the reader thread, until the process's output closes. Lines
+     *  are tagged and passed on as they come; while the ring is backed up,
+     *  "info" lines that carry no principal variation are dropped rather
+     *  than stalling Stockfish, e.g. during a long ponder. If the engine
+     *  exits on its own, a DEAD line wakes whoever waits on it.
+     *  @param  engine   The process to read from
+     *  @param  output   Where its lines go
+     *  @param  awaiting The requests waiting on it
+     */
+    private void readOutput(StockfishProcess engine, LineRing output, Queue<Request> awaiting){
+        while (!closed){
+            String line = engine.readLine();
+            if (line == null){
+                if (!closed && engine == stockfish){
+                    dead = true;
+                    output.put(DEAD, "");
+                }
+                break;
+            }
+
+            Request request = null;
+            for (Request waiting : awaiting){
+                if (waiting.accepts(line)){
+                    request = waiting;
+                    break;
+                }
+            }
+            long tag = (request == null) ? 0 : request.id;
+            if (request != null && line.startsWith(request.lastLine)){
+                awaiting.remove(request);
+            } else if (line.startsWith("info") && !line.contains(" pv ")
+                       && output.size() > OUTPUT_CAPACITY / 2){
+                continue;
+            }
+            output.put(tag, line);
+        }
+    }
+
+    /**
+     *  Registers a request just before its command is written, so that
+     *  the reader thread knows which lines answer it.
+     *  @param  lastLine The start of the line ending the reply, e.g. "readyok"
+     */
+    private synchronized void expect(String lastLine){
+        currentRequest = nextRequest++;
+        currentLastLine = lastLine;
+        awaiting.add(new Request(currentRequest, lastLine));
+        setDeadline(replyMillis);
+    }
+
+    /**
+     *  @param  millis How long from now the current reply may take, or 0
+     *                 for no limit
+     */
+    private void setDeadline(long millis){
+        deadline = (millis > 0) ? System.nanoTime() + millis * 1000000 : 0;
+        stopSent = false;
+    }
+
+    /**
+     *  Takes the next line answering the current request, waiting for one
+     *  if needed. Lines left over from earlier replies are dropped. If the
+     *  reply is not in by its deadline, or the engine exits, the engine is
+     *  restarted and the reply is ended as if it were empty.
+     *  @param  unsolicited true to also take lines no request asked for,
+     *                      such as Stockfish's greeting
+     *  @return the line as Stockfish wrote it
+     */
+    private String nextLine(boolean unsolicited){
+        try {
+            while (true){
+                LineRing ring = output;
+                String line;
+                if (deadline == 0){
+                    line = ring.take(0);
+                } else {
+                    long left = deadline - System.nanoTime();
+                    line = (left > 0) ? ring.take(left) : null;
+                }
+                if (line == null){
+                    if (currentLastLine.equals("bestmove") && !stopSent){
+                        // Give an overdue search the chance to answer
+                        stockfish.write("stop");
+                        deadline = System.nanoTime() + STOP_GRACE_MILLIS * 1000000;
+                        stopSent = true;
+                        continue;
+                    }
+                    return recover("no reply in time");
+                }
+                long tag = ring.takenTag();
+                if (tag == DEAD){ return recover("engine exited"); }
+                if (tag == currentRequest || (unsolicited && tag == 0)){ return line; }
+            }
+        } catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+            return "";
+        }
+    }
+
+    /**
+     *  Restarts the engine in the middle of a reply.
+     *  @param  reason Why, for the log
+     *  @return the line that ends the lost reply, so readers finish as if
+     *          it were empty
+     */
+    private String recover(String reason){
+        String lastLine = currentLastLine;
+        restart(reason);
+        return lastLine.equals("bestmove") ? "bestmove (none)" : lastLine;
+    }
+
+    /**
+     *  Replaces a hung or dead Stockfish with a new one, and puts the new
+     *  one on the current board from the local move list. Settings sent to
+     *  the old one are sent again.
+     *  @param  reason Why, for the log
+     */
+    private synchronized void restart(String reason){
+        StockfishProcess old = stockfish;
+        restarts++;
+        log.warn("Restarting Stockfish: {}", reason);
+        start();
+        old.kill();
+
+        currentRequest = 0;
+        currentLastLine = "readyok";
+        deadline = 0;
+        ponderMove = null;
+        ponderHit = false;
+        skillLevel = SearchLimit.FULL_SKILL;
+        elo = 0;
+        batched.setLength(0);
+        if (ponderEnabled){ enqueue("setoption name Ponder value true"); }
+        if (synced){
+            engineBehind = true;
+            catchUp();
+        } else {
+            // Nothing to restore from; Stockfish's own start is all there is
+            rootFEN = START_FEN;
+            moveList.clear();
+            synced = position.setFEN(START_FEN);
+        }
+        writeBatched();
+    }
+
+    /**
+     *  Restarts the engine if its process has exited. Run by the watchdog.
+     */
+    private synchronized void restartIfDead(){
+        if (dead && !closed){ restart("engine exited"); }
+    }
+
+    /**
+     *  Sets how long Stockfish may take to answer before it is restarted.
+     *  @param  replyMillis  For any reply, and on top of a search's own time
+     *  @param  searchMillis For a search limited by neither movetime nor clock
+     */
+    public synchronized void setDeadlines(long replyMillis, long searchMillis){
+        this.replyMillis = replyMillis;
+        this.searchMillis = searchMillis;
+    }
+
+    /**
+     *  @return how many times Stockfish has been restarted
+     */
+    public synchronized int getRestarts(){
+        return restarts;
+    }
+
+    /**
+     *  How long a search may take before it is overdue.
+     *  @param  limit The search's limit
+     *  @return the time in ms
+     */
+    private long searchMillis(SearchLimit limit){
+        if (limit.getMovetime() > 0){ return limit.getMovetime() + replyMillis; }
+        if (limit.hasClock()){
+            boolean white = position.getSideToMove() == Position.WHITE;
+            return (white ? limit.getWhiteTime() : limit.getBlackTime()) + replyMillis;
+        }
+        return searchMillis;
+    }
+
+    /**
+     *  The start of the line that ends a command's reply.
+     *  @param  command A UCI command
+     *  @return e.g. "bestmove" for "go", or null if the command has no reply
+     */
+    private static String replyEnd(String command){
+        String name = command.trim().split("\\s+", 2)[0];
+        if (name.equals("go")){ return "bestmove"; }
+        if (name.equals("isready")){ return "readyok"; }
+        if (name.equals("uci")){ return "uciok"; }
+        return null;
     }
 
     public void write(String command){
-        // Wrapper around JockfishEngine.write()
-        jockfish.write(command);
+        // Wrapper around StockfishProcess.write()
+        if (command.startsWith("position")){
+            synchronized (this){
+                track(command.trim());
+                writeBatched(command);
+            }
+            return;
+        }
+        String lastLine = replyEnd(command);
+        if (lastLine != null){
+            synchronized (this){
+                expect(lastLine);
+                writeBatched(command);
+            }
+            return;
+        }
+        stockfish.write(command);
+    }
+
+    /**
+     *  Holds a command back until the next write.
+     *  @param  command A UCI command with no reply
+     */
+    private void enqueue(String command){
+        batched.append(command).append('\n');
     }
 
-    public String read(){
-        // Wrapper around JockfishEngine.read()
-        return jockfish.read();
+    /**
+     *  Writes the commands held back, followed by one more, in one write.
+     *  @param  command The UCI command
+     */
+    private void writeBatched(String command){
+        stockfish.write(batched.append(command).toString());
+        batched.setLength(0);
     }
 
-    public String readLine(){
-        // Wrapper around JockfishEngine.readLine()
-        return jockfish.readLine().trim();
+    /**
+     *  Writes the commands held back, if any.
+     */
+    private void writeBatched(){
+        if (batched.length() == 0){ return; }
+        batched.setLength(batched.length() - 1);
+        writeBatched("");
     }
 
-    public void flush(){
-        // Discards JockfishEngine output buffer
-        jockfish.read();
+    /**
+     *  Sends a batch of commands and "isready" in one write, after any
+     *  moves Stockfish has not been told yet, so that the reply ends at
+     *  "readyok".
+     *  @param  batch The commands
+     */
+    private void query(CommandBatch batch){
+        catchUp();
+        for (String command : batch.getCommands()){
+            if (command.startsWith("position")){ track(command); }
+            enqueue(command);
+        }
+        expect("readyok");
+        writeBatched("isready");
+    }
+
+    /**
+     *  Sends several commands at once and waits once for all of their
+     *  output, rather than once per command.
+     *  @param  batch The commands, in order
+     *  @return every line Stockfish wrote in reply, in order, up to the
+     *          closing "readyok"
+     */
+    public synchronized ArrayList<String> send(CommandBatch batch){
+        ArrayList<String> lines = new ArrayList<String>();
+        String responseLine;
+        query(batch);
+        while (!(responseLine = readLine()).equals("readyok")){
+            lines.add(responseLine);
+        }
+        return lines;
+    }
+
+    /**
+     *  Follows a "position" command on the local board, the way Stockfish
+     *  reads it: moves are applied up to the first illegal one.
+     *  @param  command A UCI "position" command
+     */
+    private void track(String command){
+        cancelPonder();
+        String[] tokens = command.split("\\s+");
+        int index = 1;
+        String fen;
+        if (tokens.length > 1 && tokens[1].equals("startpos")){
+            fen = START_FEN;
+            index = 2;
+        } else if (tokens.length > 1 && tokens[1].equals("fen")){
+            StringBuilder fields = new StringBuilder();
+            for (index = 2; index < tokens.length && !tokens[index].equals("moves"); index++){
+                fields.append(fields.length() > 0 ? " " : "").append(tokens[index]);
+            }
+            fen = fields.toString();
+        } else {
+            synced = false;
+            return;
+        }
+
+        engineBehind = false;
+        moveList.clear();
+        rootFEN = fen;
+        synced = position.setFEN(fen);
+        if (!synced){ return; }
+
+        if (index < tokens.length && tokens[index].equals("moves")){
+            for (index++; index < tokens.length; index++){
+                int move = position.parseMove(tokens[index]);
+                if (move == Move.NONE){ break; }
+                play(move);
+            }
+        }
+    }
+
+    /**
+     *  Gets ready to tell Stockfish any moves made locally since it was
+     *  last told the position, as a single "position ... moves ..."
+     *  command. It goes out with the next write.
+     */
+    private void catchUp(){
+        cancelPonder();
+        if (!engineBehind){ return; }
+        enqueue(positionCommand().toString());
+        engineBehind = false;
+    }
+
+    /**
+     *  Writes the local board the way Stockfish best takes it: from the
+     *  game's root, as "startpos" where it can be, with every move since.
+     *  Stockfish then knows which boards came before, for repetitions.
+     *  @return e.g. "position startpos moves e2e4 e7e5"
+     */
+    private StringBuilder positionCommand(){
+        StringBuilder command = new StringBuilder("position ");
+        if (rootFEN.equals(START_FEN)){ command.append("startpos"); }
+        else { command.append("fen ").append(rootFEN); }
+        if (!moveList.isEmpty()){ command.append(" moves"); }
+        for (String move : moveList){ command.append(' ').append(move); }
+        return command;
+    }
+
+    /**
+     *  Makes sure the local board is known, asking Stockfish for it if not.
+     *  @return true if the local board can be used
+     */
+    private boolean ensureSynced(){
+        if (!synced){ getFEN(); }
+        return synced;
+    }
+
+    /**
+     *  Turns cross-checking against Stockfish on or off. When on, every
+     *  board read also asks Stockfish for its board and reports any
+     *  difference in the log. It can also be turned on at startup with
+     *  -Dcaffeine.engine.debug=true.
+     *  @param  debug true to cross-check every board read
+     */
+    public synchronized void setDebug(boolean debug){
+        this.debug = debug;
+    }
+
+    /**
+     *  Compares the local board with the one Stockfish reports.
+     *  @return true if they agree
+     */
+    public synchronized boolean verify(){
+        return synced && position.getFEN().equals(display("Fen:").split(" ", 2)[1]);
+    }
+
+    /**
+     *  Asks Stockfish to print its board with "d" and picks out one line.
+     *  @param  field The start of the wanted line, e.g. "Fen:"
+     *  @return the line, or field alone if Stockfish did not print one
+     */
+    private String display(String field){
+        String result = field + " ";
+        for (String responseLine : send(new CommandBatch("d"))){
+            if (responseLine.startsWith(field)){
+                result = responseLine;
+            }
+        }
+        return result;
+    }
+
+    public synchronized String read(){
+        // Everything Stockfish has written, up to a synchronizing "readyok"
+        StringBuilder result = new StringBuilder();
+        String line;
+        cancelPonder();
+        write("isready");
+        while (!(line = nextLine(true)).equals("readyok")){
+            result.append(line).append("\n");
+        }
+        return result.toString();
+    }
+
+    public synchronized String readLine(){
+        return nextLine(false).trim();
+    }
+
+    public synchronized void flush(){
+        // Discards engine output up to a synchronizing "readyok"
+        read();
     }
 
     /**
      *  Gets the current configuration settings specified for Stockfish
      *  @return a hashmap of Stockfish's current configuration
      */
-    public HashMap<String, String> getConfig(){
+    public synchronized HashMap<String, String> getConfig(){
         // TODO: DOCSTRINGS
         HashMap<String, String> result = new HashMap<String, String>();
+        cancelPonder();
         write("uci");
         String responseLine;
         while (true){
@@ -61,51 +608,56 @@ public class Core{
     }
 
     /**
-     *  Retrieves the current chess board from Stockfish
+     *  Retrieves the current chess board. This is read from the local copy,
+     *  so Stockfish is only asked when that copy is lost or in debug mode.
      *  @return the current chess board as a FEN String
      */
-    public String getFEN(){
-        String result = "";
-        String responseLine;
-        write("d");
-        write("isready");
-        while (true){
-            responseLine = readLine();
-            if (responseLine.equals("readyok")){ break; }
-            if (responseLine.contains("Fen")){
-                result = responseLine.split(" ", 2)[1];
-            }
+    public synchronized String getFEN(){
+        if (synced && !debug){ return position.getFEN(); }
+
+        String reported = display("Fen:").split(" ", 2)[1];
+        if (synced && !reported.equals(position.getFEN())){
+            log.warn("Tracked board {} differs from Stockfish's {}", position.getFEN(), reported);
+            synced = false;
         }
-        return result;
+        if (!synced){
+            rootFEN = reported;
+            moveList.clear();
+            synced = position.setFEN(reported);
+        }
+        return reported;
     }
 
     /**
-     *  Retrieves the list of pieces that are checking the king
+     *  Retrieves the list of pieces that are checking the king, in the
+     *  format of Stockfish's "d" output, e.g. "Checkers: e1"
      *  @return the list of checkers as a string
      */
-    public String getCheckers(){
-        String result = "";
-        String responseLine;
-        write("d");
-        write("isready");
-        while (true){
-            responseLine = readLine();
-            if (responseLine.equals("readyok")){ break; }
-            if (responseLine.contains("Checkers")){
-                result = responseLine;
-            }
+    public synchronized String getCheckers(){
+        if (!ensureSynced()){ return display("Checkers:"); }
+        StringBuilder result = new StringBuilder("Checkers:");
+        for (long checkers = position.getCheckers(); checkers != 0; checkers &= checkers - 1){
+            int sq = Long.numberOfTrailingZeros(checkers);
+            result.append(' ').append((char) ('a' + (sq & 7))).append((char) ('1' + (sq >>> 3)));
         }
-        return result;
+        return result.toString();
     }
 
     /**
-     *  Sets the chess board in Stockfish
+     *  Sets the chess board in Stockfish. A board already reached in this
+     *  game, such as one before an undo, is returned to by taking moves
+     *  back, so the game keeps its root and Stockfish its move history.
+     *  Any other board becomes a new root.
      *  @param  fen The desired chess board as a FEN string
      *  @return true if successful, false otherwise
      */
-    public boolean setFEN(String fen){
+    public synchronized boolean setFEN(String fen){
         if (!Utils.isValidFEN(fen)){ return false; }
-        flush();
+        int plies = pliesSince(fen);
+        if (plies >= 0){
+            for (int i = 0; i < plies; i++){ takeBack(); }
+            return getFEN().equals(fen);
+        }
         write(String.format("position fen %s", fen));
         String newFen = getFEN();
         return (newFen.equals(fen));
@@ -117,37 +669,403 @@ public class Core{
      *  @param  timeout How long (in ms) Stockfish can ponder upon a move
      *  @return a moved suggested by Stockfish
      */
-    public String getBestMove(int timeout){
-        // Gets suggested best move from Stockfish after a maximum time (ms).
-        // Returns said move.
-        String result = "";
+    public synchronized String getBestMove(int timeout){
+        return search(timeout).getBestMove();
+    }
+
+    /**
+     *  Gets a suggested best move from Stockfish within a search limit.
+     *  @param  limit How far and how well Stockfish may search
+     *  @return a moved suggested by Stockfish
+     */
+    public synchronized String getBestMove(SearchLimit limit){
+        return search(limit).getBestMove();
+    }
+
+    /**
+     *  Searches the current board for a specified amount of time. A board
+     *  searched before with the same time is answered from the cache.
+     *  @param  timeout How long (in ms) Stockfish can ponder upon a move
+     *  @return the best move, score and principal variation found
+     */
+    public synchronized SearchResult search(int timeout){
+        return search(SearchLimit.movetime(timeout));
+    }
+
+    /**
+     *  Searches the current board within a search limit, at the limit's
+     *  strength. A board searched before with the same limit is answered
+     *  from the cache. Searches with a clock always run, as time left
+     *  differs from one move to the next, and so do weakened ones, which
+     *  are meant to pick a different move now and then. The key leaves out
+     *  the halfmove clock and the boards played before, so that a board
+     *  reached by another route is found too. Those only change Stockfish's
+     *  answer near the fifty-move limit or a repetition, and the move found
+     *  first is still legal there.
+     *  @param  limit How far and how well Stockfish may search
+     *  @return the best move, score and principal variation found
+     */
+    public synchronized SearchResult search(SearchLimit limit){
+        int restartsBefore = restarts;
+        if (ponderHit){
+            SearchResult result = finishPonder();
+            return (restarts == restartsBefore) ? result : fallbackSearch();
+        }
+        String cacheKey = limit.toString();
+        boolean cacheable = ensureSynced() && !limit.hasClock() && bestMoveCache != null
+            && limit.getSkillLevel() == SearchLimit.FULL_SKILL && limit.getElo() == 0;
+        long key = position.getKey();
+        if (cacheable){
+            SearchResult cached = bestMoveCache.get(key, cacheKey);
+            if (cached != null){ return cached; }
+        }
+
+        ArrayList<String> lines = new ArrayList<String>();
         String responseLine;
-        write(String.format("go movetime %d", timeout));
+        long stopsBefore;
+        catchUp();
+        applyStrength(limit);
+        synchronized (stopLock){
+            stopsBefore = stops;
+            write("go " + limit.getGoArguments());
+        }
+        setDeadline(searchMillis(limit));
         while (true){
             responseLine = readLine();
-            if (responseLine.contains("bestmove")){
-                result = responseLine.split(" ", 3)[1];
+            lines.add(responseLine);
+            if (responseLine.startsWith("bestmove")){ break; }
+        }
+        if (restarts != restartsBefore){ return fallbackSearch(); }
+
+        SearchResult result = SearchResult.parse(lines);
+        synchronized (stopLock){
+            cacheable &= (stops == stopsBefore) && !stopSent;
+        }
+        if (cacheable){ bestMoveCache.put(key, cacheKey, result); }
+        return result;
+    }
+
+    /**
+     *  Finds a move after a search was lost to a restart: a quick search on
+     *  the new engine, or if that fails too, the first legal move.
+     *  @return the move found, with no score or variation to speak of
+     */
+    private SearchResult fallbackSearch(){
+        int restartsBefore = restarts;
+        ArrayList<String> lines = new ArrayList<String>();
+        String responseLine;
+        catchUp();
+        write("go depth 1");
+        while (true){
+            responseLine = readLine();
+            lines.add(responseLine);
+            if (responseLine.startsWith("bestmove")){ break; }
+        }
+        if (restarts == restartsBefore){ return SearchResult.parse(lines); }
+
+        ArrayList<String> legalMoves = synced ? position.getLegalMoves() : new ArrayList<String>();
+        String move = legalMoves.isEmpty() ? "(none)" : legalMoves.get(0);
+        return SearchResult.parse(Arrays.asList("bestmove " + move));
+    }
+
+    /**
+     *  Gets ready to send Stockfish the strength settings of a limit, where
+     *  they differ from the last ones sent. They go out with the next
+     *  write. An engine without UCI_LimitStrength, such as the bundled
+     *  Stockfish 7, plays a rating at the nearest Skill Level instead.
+     *  @param  limit The limit about to be searched with
+     */
+    private void applyStrength(SearchLimit limit){
+        int skill = limit.getSkillLevel();
+        int rating = limit.getElo();
+        if (rating > 0 && !getOptions().contains("UCI_LimitStrength")){
+            skill = Math.min(skill, skillForElo(rating));
+            rating = 0;
+        }
+        if (skill != skillLevel){
+            enqueue("setoption name Skill Level value " + skill);
+            skillLevel = skill;
+        }
+        if (rating != elo){
+            if (rating > 0){ enqueue("setoption name UCI_Elo value " + rating); }
+            enqueue("setoption name UCI_LimitStrength value " + (rating > 0));
+            elo = rating;
+        }
+    }
+
+    /**
+     *  The Skill Level closest to a rating, on the scale later Stockfish
+     *  versions use for UCI_Elo: about 1350 at level 0 up to 2850 at 20.
+     *  @param  rating An Elo rating
+     *  @return a Skill Level from 0 to 20
+     */
+    static int skillForElo(int rating){
+        int level = Math.round((rating - 1350) / 75.0f);
+        return Math.max(0, Math.min(SearchLimit.FULL_SKILL, level));
+    }
+
+    /**
+     *  Names every option Stockfish offers, asking it once with "uci".
+     *  @return the option names, e.g. "Skill Level"
+     */
+    private Set<String> getOptions(){
+        if (options == null){
+            options = new HashSet<String>();
+            String responseLine;
+            cancelPonder();
+            write("uci");
+            while (!(responseLine = readLine()).equals("uciok")){
+                int type = responseLine.indexOf(" type ");
+                if (responseLine.startsWith("option name ") && type > 0){
+                    options.add(responseLine.substring("option name ".length(), type));
+                }
+            }
+        }
+        return options;
+    }
+
+    /**
+     *  @param  name An option name, e.g. "UCI_LimitStrength"
+     *  @return true if Stockfish offers the option
+     */
+    public synchronized boolean hasOption(String name){
+        return getOptions().contains(name);
+    }
+
+    /**
+     *  @return where search results are remembered, or null if nowhere
+     */
+    public BestMoveCache getBestMoveCache(){
+        return bestMoveCache;
+    }
+
+    /**
+     *  Performs a move if it is legal on the current board. Stockfish is
+     *  told of it before its next search.
+     *  @param  move The requested move, as a String
+     *  @return true if the move was successful, false if it was illegal
+     */
+    public synchronized boolean move(String move){
+        String sanMove = move.toLowerCase().trim();
+
+        if (!ensureSynced()){
+            // Board unknown locally, so let Stockfish judge the move
+            String oldBoard = getFEN();
+            write(String.format("position fen %s moves %s", oldBoard, sanMove));
+            return !getFEN().equals(oldBoard);
+        }
+
+        int legalMove = position.parseMove(sanMove);
+        if (legalMove == Move.NONE){ return false; }
+        if (ponderMove != null && !ponderHit && Move.toUci(legalMove).equals(ponderMove)){
+            // Stockfish is already on this board, searching
+            write("ponderhit");
+            ponderHit = true;
+            play(legalMove);
+            setDeadline(searchMillis(ponderLimit));
+            return true;
+        }
+        cancelPonder();
+        play(legalMove);
+        engineBehind = true;
+        return true;
+    }
+
+    /**
+     *  Makes a move on the local board and adds it to the move list.
+     *  @param  move A legal move, as encoded by Position
+     */
+    private void play(int move){
+        if (moveList.size() == moveCodes.length){
+            moveCodes = Arrays.copyOf(moveCodes, moveCodes.length * 2);
+        }
+        moveCodes[moveList.size()] = move;
+        moveList.add(Move.toUci(move));
+        position.makeMove(move);
+    }
+
+    /**
+     *  Finds a board among those reached since the game's root.
+     *  @param  fen The board as a FEN string
+     *  @return how many moves ago it was reached, 0 for the current board,
+     *          or -1 if it was not
+     */
+    private int pliesSince(String fen){
+        if (!synced){ return -1; }
+        int found = -1;
+        int plies = 0;
+        while (true){
+            if (position.getFEN().equals(fen)){
+                found = plies;
                 break;
             }
+            if (plies == moveList.size()){ break; }
+            plies++;
+            position.unmakeMove(moveCodes[moveList.size() - plies]);
+        }
+        // Put the board back as it was
+        for (int i = moveList.size() - plies; i < moveList.size(); i++){
+            position.makeMove(moveCodes[i]);
+        }
+        return found;
+    }
+
+    /**
+     *  Takes back the last move made since the board was set. Stockfish is
+     *  told before its next search.
+     *  @return true if successful, false if there was no move to take back
+     */
+    public synchronized boolean takeBack(){
+        cancelPonder();
+        if (!synced || moveList.isEmpty()){ return false; }
+        int last = moveList.size() - 1;
+        position.unmakeMove(moveCodes[last]);
+        moveList.remove(last);
+        engineBehind = true;
+        return true;
+    }
+
+    /**
+     *  Retrieves every legal move in the current position.
+     *  @return the legal moves in UCI notation, e.g. "e2e4" or "e7e8q"
+     */
+    public synchronized ArrayList<String> getLegalMoves(){
+        if (ensureSynced()){ return position.getLegalMoves(); }
+        return new ArrayList<String>(perft(1).keySet());
+    }
+
+    /**
+     *  Runs Stockfish's own perft on the current position. Its time grows
+     *  quickly with depth, so it has no deadline.
+     *  @param  depth How many plies deep to count, at least 1
+     *  @return leaf node counts keyed by each legal move in UCI notation
+     */
+    public synchronized LinkedHashMap<String, Long> perft(int depth){
+        LinkedHashMap<String, Long> result = new LinkedHashMap<String, Long>();
+        String responseLine;
+        query(new CommandBatch(String.format("perft %d", depth)));
+        setDeadline(0);
+        while (true){
+            responseLine = readLine();
+            if (responseLine.equals("readyok")){ break; }
+            if (responseLine.matches("[a-h][1-8][a-h][1-8][qrbn]?: \\d+")){
+                String[] items = responseLine.split(": ");
+                result.put(items[0], Long.parseLong(items[1]));
+            }
         }
         return result;
     }
 
     /**
-     *  Gets current board, performs a move, and tests to verify it happened.
-     *  @param  move The requested move, as a String
-     *  @return true if the move was successful, false if Stockfish rejected the move
+     *  Resets Stockfish for an unrelated game. Pending requests are
+     *  cancelled, "ucinewgame" clears its hash and search history, and the
+     *  board returns to the starting position.
      */
-    public boolean move(String move){
-        String oldBoard, newBoard, sanMove;
+    public void newGame(){
+        stop();
+        reset();
+    }
 
-        sanMove = move.toLowerCase().trim();
+    private synchronized void reset(){
+        cancelPonder();
+        // The old board need not be caught up with
+        engineBehind = false;
+        send(new CommandBatch("ucinewgame", "position startpos"));
+    }
 
-        oldBoard = getFEN();
-        write(String.format("position fen %s moves %s", oldBoard, sanMove));
-        newBoard = getFEN();
+    /**
+     *  Asks Stockfish to exit. This instance cannot be used afterwards.
+     */
+    public void quit(){
+        stop();
+        closed = true;
+        watch.cancel(false);
+        requests.shutdown();
+        write("quit");
+    }
+
+// ================= ASYNCHRONOUS REQUESTS ====================================
 
-        return (!newBoard.equals(oldBoard));
+    /**
+     *  Queues a blocking request to run on the request thread.
+     *  @param  request The blocking call to make
+     *  @return a future completed with the request's result
+     */
+    private <T> CompletableFuture<T> submit(Supplier<T> request){
+        CompletableFuture<T> future = CompletableFuture.supplyAsync(request, requests);
+        pending.add(future);
+        future.whenComplete((result, error) -> pending.remove(future));
+        return future;
+    }
+
+    /**
+     *  Retrieves the current chess board without blocking the caller.
+     *  @return a future completed with the board as a FEN String
+     */
+    public CompletableFuture<String> getFENAsync(){
+        return submit(this::getFEN);
+    }
+
+    /**
+     *  Retrieves the checking pieces without blocking the caller.
+     *  @return a future completed with the list of checkers as a string
+     */
+    public CompletableFuture<String> getCheckersAsync(){
+        return submit(this::getCheckers);
+    }
+
+    /**
+     *  Starts a search without blocking the caller.
+     *  @param  timeout How long (in ms) Stockfish can ponder upon a move
+     *  @return a future completed with the move suggested by Stockfish
+     */
+    public CompletableFuture<String> getBestMoveAsync(int timeout){
+        return submit(() -> getBestMove(timeout));
+    }
+
+    /**
+     *  Searches for and performs Stockfish's best move without blocking the
+     *  caller.
+     *  @param  timeout How long (in ms) Stockfish should ponder upon a move
+     *  @return a future completed with the move performed, or "(none)"
+     */
+    public CompletableFuture<String> cpuMoveAsync(int timeout){
+        return submit(() -> cpuMove(timeout));
+    }
+
+    /**
+     *  Searches for and performs Stockfish's best move within a search
+     *  limit without blocking the caller.
+     *  @param  limit How far and how well Stockfish may search
+     *  @return a future completed with the move performed, or "(none)"
+     */
+    public CompletableFuture<String> cpuMoveAsync(SearchLimit limit){
+        return submit(() -> cpuMove(limit));
+    }
+
+    /**
+     *  Turns pondering on or off without waiting for a search under way to
+     *  finish. The change is kept even if stop() cancels other requests.
+     *  @param  ponder true to search on the user's time
+     *  @return a future completed once the change is made
+     */
+    public CompletableFuture<Void> setPonderAsync(boolean ponder){
+        return CompletableFuture.runAsync(() -> setPonder(ponder), requests);
+    }
+
+    /**
+     *  Cancels every pending asynchronous request. A search already under
+     *  way is told to "stop", so the engine is free again almost at once;
+     *  requests still queued behind it are dropped. The futures of all of
+     *  them complete with a CancellationException.
+     */
+    public void stop(){
+        if (pending.isEmpty()){ return; }
+        for (CompletableFuture<?> future : pending){ future.cancel(false); }
+        synchronized (stopLock){
+            stops++;
+            write("stop");
+        }
     }
 
     /**
@@ -155,15 +1073,117 @@ public class Core{
      *  @param  timeout How long (in ms) Stockfish should ponder upon a move
      *  @return the move that was just performed
      */
-    public String cpuMove(int timeout){
+    public synchronized String cpuMove(int timeout){
+        return cpuMove(SearchLimit.movetime(timeout));
+    }
+
+    /**
+     *  Performs Stockfish's best move within a search limit. If stop() cuts
+     *  the search short, its caller has already given up on the move, so
+     *  the board is left as it was.
+     *  @param  limit How far and how well Stockfish may search
+     *  @return the move that was just performed, or "(none)"
+     */
+    public synchronized String cpuMove(SearchLimit limit){
         boolean pieceMoved;
-        String bestMove;
-        bestMove = getBestMove(timeout);
+        long stopsBefore;
+        synchronized (stopLock){ stopsBefore = stops; }
+        SearchResult result = search(limit);
+        synchronized (stopLock){
+            if (stops != stopsBefore){ return "(none)"; }
+        }
+        String bestMove = result.getBestMove();
         pieceMoved = move(bestMove);
-        if (pieceMoved){ return bestMove; }
+        if (pieceMoved){
+            if (ponderEnabled){ startPonder(result.getPonder(), limit); }
+            return bestMove;
+        }
         else { return "(none)"; }
     }
 
+// ================= PONDERING ================================================
+
+    /**
+     *  Turns pondering on or off. When on, Stockfish goes on searching on
+     *  the reply it expects after each CPU move, so that the next CPU move
+     *  comes back at once if the user plays it. It can also be turned on at
+     *  startup with -Dcaffeine.engine.ponder=true.
+     *  @param  ponder true to search on the user's time
+     */
+    public synchronized void setPonder(boolean ponder){
+        if (!ponder){ cancelPonder(); }
+        ponderEnabled = ponder;
+        // Stockfish budgets its time differently when it may ponder
+        write("setoption name Ponder value " + ponder);
+    }
+
+    public synchronized boolean isPonderEnabled(){
+        return ponderEnabled;
+    }
+
+    /**
+     *  @return the reply Stockfish is pondering on, or null if it is not
+     */
+    public synchronized String getPonderMove(){
+        return ponderHit ? null : ponderMove;
+    }
+
+    /**
+     *  Starts Stockfish searching the board after an expected reply,
+     *  without waiting for it. The local board stays where it is.
+     *  @param  reply The expected reply, or null if there is none
+     *  @param  limit The limit of the search that will take over on a hit
+     */
+    private void startPonder(String reply, SearchLimit limit){
+        if (reply == null || !synced || position.parseMove(reply) == Move.NONE){ return; }
+        StringBuilder command = positionCommand();
+        command.append(moveList.isEmpty() ? " moves " : " ").append(reply);
+        // Held back past track(): the local board must not take the reply
+        enqueue(command.toString());
+        engineBehind = true;
+        applyStrength(limit);
+        write("go ponder " + limit.getGoArguments());
+        // No deadline while the user thinks; the watchdog still looks on
+        setDeadline(0);
+        ponderMove = reply;
+        ponderHit = false;
+        ponderLimit = limit;
+    }
+
+    /**
+     *  Waits for a hit ponder search to finish, as the CPU's search.
+     *  @return the best move, score and principal variation found
+     */
+    private SearchResult finishPonder(){
+        ArrayList<String> lines = new ArrayList<String>();
+        String responseLine;
+        do {
+            responseLine = readLine();
+            lines.add(responseLine);
+        } while (!responseLine.startsWith("bestmove"));
+        ponderMove = null;
+        ponderHit = false;
+        engineBehind = false;
+        return SearchResult.parse(lines);
+    }
+
+    /**
+     *  Stops any ponder search and throws its result away. Stockfish is
+     *  told the board again before its next use.
+     */
+    private void cancelPonder(){
+        if (ponderMove == null){ return; }
+        write("stop");
+        setDeadline(replyMillis);
+        String responseLine;
+        do {
+            responseLine = readLine();
+        } while (!responseLine.startsWith("bestmove"));
+        ponderMove = null;
+        ponderHit = false;
+        engineBehind = true;
+    }
+
 // ================= INCOMPLETE/WIP METHODS    ================================
 // ================= DO NOT USE THESE METHODS! ================================
 /*    public ArrayList<String> getCheckers(){
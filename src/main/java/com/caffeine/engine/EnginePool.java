@@ -0,0 +1,204 @@
+package com.caffeine.engine;
+
+// First-Party Imports
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ *  Leases Stockfish instances so the live game, hints and batch analysis
+ *  can each search on their own process instead of queuing behind one.
+ *  Instances are started on demand up to a fixed size, reset with
+ *  "ucinewgame" whenever they are leased, and shut down after sitting idle
+ *  for too long.
+ */
+public class EnginePool {
+
+    public static final long DEFAULT_IDLE_MILLIS = 60000;
+
+    private final int size;
+    private final long idleMillis;
+
+    // Idle instances, most recently released first, and when each was released
+    private final ArrayDeque<Core> idle = new ArrayDeque<Core>();
+    private final IdentityHashMap<Core, Long> idleSince = new IdentityHashMap<Core, Long>();
+    private final Set<Core> leased = Collections.newSetFromMap(new IdentityHashMap<Core, Boolean>());
+    private int starting = 0;
+    private boolean closed = false;
+
+    private final ScheduledExecutorService evictor;
+
+    // Shared by every instance, so a search made by one serves them all
+    private final BestMoveCache bestMoveCache = new BestMoveCache();
+
+    /**
+     *  Creates a pool that evicts instances idle for a minute.
+     *  @param  size The most instances that may run at once
+     */
+    public EnginePool(int size){
+        this(size, DEFAULT_IDLE_MILLIS);
+    }
+
+    /**
+     *  @param  size       The most instances that may run at once
+     *  @param  idleMillis How long (in ms) an instance may sit unused before
+     *                     it is shut down, or 0 to keep instances forever
+     */
+    public EnginePool(int size, long idleMillis){
+        if (size < 1){ throw new IllegalArgumentException("Pool size must be at least 1"); }
+        this.size = size;
+        this.idleMillis = idleMillis;
+        if (idleMillis > 0){
+            evictor = Executors.newSingleThreadScheduledExecutor(task -> {
+                Thread worker = new Thread(task, "engine-pool-evictor");
+                worker.setDaemon(true);
+                return worker;
+            });
+            long period = Math.max(idleMillis / 2, 10);
+            evictor.scheduleWithFixedDelay(this::evictIdle, period, period, TimeUnit.MILLISECONDS);
+        } else {
+            evictor = null;
+        }
+    }
+
+    /**
+     *  Leases an instance, waiting for one to be released if all are in use.
+     *  @return an instance set to the starting position with a clear hash
+     */
+    public Core lease(){
+        try {
+            return acquire(-1);
+        } catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for an engine", e);
+        }
+    }
+
+    /**
+     *  Leases an instance, giving up after a while if all are in use.
+     *  @param  timeout How long to wait for an instance
+     *  @param  unit    The unit of timeout
+     *  @return an instance set to the starting position with a clear hash,
+     *          or null if none became free in time
+     */
+    public Core tryLease(long timeout, TimeUnit unit) throws InterruptedException {
+        return acquire(unit.toNanos(timeout));
+    }
+
+    /**
+     *  @param  nanos How long to wait, or a negative number to wait forever
+     */
+    private Core acquire(long nanos) throws InterruptedException {
+        Core core;
+        synchronized (this){
+            long deadline = System.nanoTime() + nanos;
+            while (!closed && idle.isEmpty() && liveCount() >= size){
+                if (nanos < 0){
+                    wait();
+                } else {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0){ return null; }
+                    TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                }
+            }
+            if (closed){ throw new IllegalStateException("Engine pool is closed"); }
+            core = idle.pollFirst();
+            if (core != null){
+                idleSince.remove(core);
+                leased.add(core);
+            } else {
+                starting++;
+            }
+        }
+
+        if (core == null){
+            // Start the process outside the lock so others can release
+            try {
+                core = new Core(bestMoveCache);
+            } finally {
+                synchronized (this){
+                    starting--;
+                    if (core != null){ leased.add(core); }
+                    notifyAll();
+                }
+            }
+        }
+        core.newGame();
+        return core;
+    }
+
+    /**
+     *  Returns a leased instance to the pool. Any search it is still
+     *  running is stopped.
+     *  @param  core An instance leased from this pool
+     */
+    public void release(Core core){
+        core.stop();
+        boolean shutDown;
+        synchronized (this){
+            if (!leased.remove(core)){
+                throw new IllegalArgumentException("Engine was not leased from this pool");
+            }
+            shutDown = closed;
+            if (!closed){
+                idle.addFirst(core);
+                idleSince.put(core, System.currentTimeMillis());
+            }
+            notifyAll();
+        }
+        if (shutDown){ core.quit(); }
+    }
+
+    /**
+     *  Shuts down every instance that has been idle for longer than the
+     *  idle limit. Runs periodically on the evictor thread.
+     */
+    void evictIdle(){
+        ArrayList<Core> evicted = new ArrayList<Core>();
+        synchronized (this){
+            long cutoff = System.currentTimeMillis() - idleMillis;
+            // The oldest releases are at the back
+            while (!idle.isEmpty() && idleSince.get(idle.peekLast()) <= cutoff){
+                Core core = idle.pollLast();
+                idleSince.remove(core);
+                evicted.add(core);
+            }
+        }
+        for (Core core : evicted){ core.quit(); }
+    }
+
+    /**
+     *  Shuts down the idle instances now, and leased ones as they are
+     *  released. The pool cannot lease afterwards.
+     */
+    public void close(){
+        ArrayList<Core> evicted;
+        synchronized (this){
+            closed = true;
+            evicted = new ArrayList<Core>(idle);
+            idle.clear();
+            idleSince.clear();
+            notifyAll();
+        }
+        if (evictor != null){ evictor.shutdownNow(); }
+        for (Core core : evicted){ core.quit(); }
+    }
+
+    public BestMoveCache getBestMoveCache(){
+        return bestMoveCache;
+    }
+
+    public int getSize(){
+        return size;
+    }
+
+    /**
+     *  @return how many instances are running, leased or idle
+     */
+    public synchronized int liveCount(){
+        return idle.size() + leased.size() + starting;
+    }
+
+    public synchronized int idleCount(){
+        return idle.size();
+    }
+}
@@ -0,0 +1,125 @@
+package com.caffeine.engine;
+
+// First-Party Imports
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ *  A bounded queue of engine output lines, each tagged with a number, for
+ *  one producer thread and one consumer at a time. Neither side takes a
+ *  lock: the producer only moves the tail and the consumer only moves the
+ *  head. A consumer with nothing to read spins briefly, then parks until
+ *  the producer publishes a line.
+ */
+public class LineRing {
+
+    private final String[] lines;
+    private final long[] tags;
+    private final int mask;
+
+    private final AtomicLong head = new AtomicLong(); // next slot to read
+    private final AtomicLong tail = new AtomicLong(); // next slot to write
+    private volatile Thread waiting = null;           // consumer parked for a line
+
+    // Tag of the line last taken; only the consumer touches it
+    private long takenTag = 0;
+
+    /**
+     *  @param  capacity The most lines held, rounded up to a power of two
+     */
+    public LineRing(int capacity){
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        lines = new String[size];
+        tags = new long[size];
+        mask = size - 1;
+    }
+
+    public int capacity(){
+        return lines.length;
+    }
+
+    public int size(){
+        return (int) (tail.get() - head.get());
+    }
+
+    /**
+     *  Adds a line if there is room. Producer only.
+     *  @param  tag  The number to tag it with
+     *  @param  line The line
+     *  @return true if added, false if the ring is full
+     */
+    public boolean offer(long tag, String line){
+        long t = tail.get();
+        if (t - head.get() == lines.length){ return false; }
+        int slot = (int) t & mask;
+        lines[slot] = line;
+        tags[slot] = tag;
+        // Publishing the tail makes the slot visible to the consumer
+        tail.set(t + 1);
+        Thread consumer = waiting;
+        if (consumer != null){ LockSupport.unpark(consumer); }
+        return true;
+    }
+
+    /**
+     *  Adds a line, waiting for room if the ring is full. Producer only.
+     *  @param  tag  The number to tag it with
+     *  @param  line The line
+     */
+    public void put(long tag, String line){
+        while (!offer(tag, line)){
+            LockSupport.parkNanos(100000);
+        }
+    }
+
+    /**
+     *  Takes the oldest line if there is one. Consumer only.
+     *  @return the line, or null if the ring is empty
+     */
+    public String poll(){
+        long h = head.get();
+        if (h == tail.get()){ return null; }
+        int slot = (int) h & mask;
+        String line = lines[slot];
+        takenTag = tags[slot];
+        lines[slot] = null;
+        head.set(h + 1);
+        return line;
+    }
+
+    /**
+     *  Takes the oldest line, waiting up to a timeout for one. Consumer only.
+     *  @param  timeoutNanos The longest to wait, or 0 to wait for good
+     *  @return the line, or null if none came in time
+     *  @throws InterruptedException if interrupted while waiting
+     */
+    public String take(long timeoutNanos) throws InterruptedException {
+        long deadline = System.nanoTime() + timeoutNanos;
+        String line;
+        for (int spins = 0; (line = poll()) == null; spins++){
+            if (spins < 64){
+                Thread.yield();
+                continue;
+            }
+            long left = deadline - System.nanoTime();
+            if (timeoutNanos > 0 && left <= 0){ return null; }
+            waiting = Thread.currentThread();
+            // Checked again after waiting is set, so a line published in
+            // between is never slept through
+            if (head.get() == tail.get()){
+                if (timeoutNanos > 0){ LockSupport.parkNanos(this, left); }
+                else { LockSupport.park(this); }
+            }
+            waiting = null;
+            if (Thread.interrupted()){ throw new InterruptedException(); }
+        }
+        return line;
+    }
+
+    /**
+     *  @return the tag of the line last taken by poll() or take()
+     */
+    public long takenTag(){
+        return takenTag;
+    }
+}
@@ -0,0 +1,245 @@
+package com.caffeine.engine;
+
+/**
+ *  How far the engine may search for one move, and how well it plays.
+ *  Depth and node limits give the same strength on any machine; a movetime
+ *  limit depends on how fast the host is. A clock leaves the time to spend
+ *  to the engine, from both sides' time left. Limits may be combined, and
+ *  the search stops at whichever is reached first. SearchLimits are
+ *  immutable: the with methods return a changed copy.
+ *
+ *  The text form is the one used after "go", followed by the strength
+ *  settings, e.g. "depth 8 nodes 50000 skill 10 elo 1600". parse() reads
+ *  it back.
+ */
+public final class SearchLimit{
+
+    public static final int FULL_SKILL = 20;
+
+    private final int movetime;         // ms, or 0 for none
+    private final int depth;            // plies, or 0 for none
+    private final long nodes;           // or 0 for none
+    private final long wtime, btime;    // ms left on each clock, or 0 for no clock
+    private final long winc, binc;      // ms added after each move
+    private final int movesToGo;        // moves to the next time control, or 0
+    private final int skillLevel;       // Stockfish "Skill Level", 0 to 20
+    private final int elo;              // UCI_Elo, or 0 to play at full strength
+
+    private SearchLimit(int movetime, int depth, long nodes, int skillLevel, int elo){
+        this(movetime, depth, nodes, 0, 0, 0, 0, 0, skillLevel, elo);
+    }
+
+    private SearchLimit(int movetime, int depth, long nodes, long wtime, long btime,
+                        long winc, long binc, int movesToGo, int skillLevel, int elo){
+        this.movetime = movetime;
+        this.depth = depth;
+        this.nodes = nodes;
+        this.wtime = wtime;
+        this.btime = btime;
+        this.winc = winc;
+        this.binc = binc;
+        this.movesToGo = movesToGo;
+        this.skillLevel = Math.max(0, Math.min(FULL_SKILL, skillLevel));
+        this.elo = Math.max(0, elo);
+    }
+
+    /**
+     *  @param  ms How long (in ms) the engine may search
+     *  @return a limit of "go movetime ms" at full strength
+     */
+    public static SearchLimit movetime(int ms){
+        return new SearchLimit(ms, 0, 0, FULL_SKILL, 0);
+    }
+
+    /**
+     *  @param  plies How many plies deep the engine may search
+     *  @return a limit of "go depth plies" at full strength
+     */
+    public static SearchLimit depth(int plies){
+        return new SearchLimit(0, plies, 0, FULL_SKILL, 0);
+    }
+
+    /**
+     *  @param  count How many nodes the engine may search
+     *  @return a limit of "go nodes count" at full strength
+     */
+    public static SearchLimit nodes(long count){
+        return new SearchLimit(0, 0, count, FULL_SKILL, 0);
+    }
+
+    /**
+     *  Reads a limit in the form written by toString(). The keys are
+     *  movetime, depth, nodes, wtime, btime, winc, binc, movestogo, skill
+     *  and elo, each followed by a number.
+     *
+     *  @param  text The limit, e.g. "depth 5 skill 3"
+     *  @return the limit read
+     *  @throws IllegalArgumentException if a key or number is not understood,
+     *          or the limit does not bound the search
+     */
+    public static SearchLimit parse(String text){
+        String[] tokens = text.trim().split("\\s+");
+        if (tokens.length % 2 != 0){
+            throw new IllegalArgumentException("Expected key and value pairs: " + text);
+        }
+        SearchLimit limit = new SearchLimit(0, 0, 0, FULL_SKILL, 0);
+        for (int i = 0; i < tokens.length; i += 2){
+            long value;
+            try {
+                value = Long.parseLong(tokens[i + 1]);
+            } catch (NumberFormatException e){
+                throw new IllegalArgumentException("Not a number: " + tokens[i + 1]);
+            }
+            String key = tokens[i];
+            if (key.equals("movetime")){
+                limit = limit.withMovetime((int) value);
+            } else if (key.equals("depth")){
+                limit = limit.withDepth((int) value);
+            } else if (key.equals("nodes")){
+                limit = limit.withNodes(value);
+            } else if (key.equals("wtime")){
+                limit = limit.withClock(value, limit.btime, limit.winc, limit.binc, limit.movesToGo);
+            } else if (key.equals("btime")){
+                limit = limit.withClock(limit.wtime, value, limit.winc, limit.binc, limit.movesToGo);
+            } else if (key.equals("winc")){
+                limit = limit.withClock(limit.wtime, limit.btime, value, limit.binc, limit.movesToGo);
+            } else if (key.equals("binc")){
+                limit = limit.withClock(limit.wtime, limit.btime, limit.winc, value, limit.movesToGo);
+            } else if (key.equals("movestogo")){
+                limit = limit.withClock(limit.wtime, limit.btime, limit.winc, limit.binc, (int) value);
+            } else if (key.equals("skill")){
+                limit = limit.withSkillLevel((int) value);
+            } else if (key.equals("elo")){
+                limit = limit.withElo((int) value);
+            } else {
+                throw new IllegalArgumentException("Unknown limit: " + key);
+            }
+        }
+        if (limit.getGoArguments().isEmpty()){
+            throw new IllegalArgumentException("No movetime, depth, nodes or clock limit: " + text);
+        }
+        return limit;
+    }
+
+    public SearchLimit withMovetime(int ms){
+        return new SearchLimit(ms, depth, nodes, wtime, btime, winc, binc, movesToGo, skillLevel, elo);
+    }
+
+    public SearchLimit withDepth(int plies){
+        return new SearchLimit(movetime, plies, nodes, wtime, btime, winc, binc, movesToGo, skillLevel, elo);
+    }
+
+    public SearchLimit withNodes(long count){
+        return new SearchLimit(movetime, depth, count, wtime, btime, winc, binc, movesToGo, skillLevel, elo);
+    }
+
+    /**
+     *  Lets the engine manage its own time from the game's clocks.
+     *
+     *  @param  wtime     White's time left, in ms
+     *  @param  btime     Black's time left, in ms
+     *  @param  winc      White's increment per move, in ms
+     *  @param  binc      Black's increment per move, in ms
+     *  @param  movesToGo Moves to the next time control, or 0 if the time
+     *                    left must last the whole game
+     *  @return a copy of this limit on the given clocks
+     */
+    public SearchLimit withClock(long wtime, long btime, long winc, long binc, int movesToGo){
+        // Stockfish takes 0 as "no clock", so a flagged side keeps 1 ms
+        return new SearchLimit(movetime, depth, nodes, Math.max(1, wtime), Math.max(1, btime),
+            Math.max(0, winc), Math.max(0, binc), Math.max(0, movesToGo), skillLevel, elo);
+    }
+
+    /**
+     *  @param  level Stockfish's "Skill Level", from 0 (weakest) to 20
+     *  @return a copy of this limit at the given skill
+     */
+    public SearchLimit withSkillLevel(int level){
+        return new SearchLimit(movetime, depth, nodes, wtime, btime, winc, binc, movesToGo, level, elo);
+    }
+
+    /**
+     *  @param  rating The Elo to play at through UCI_LimitStrength, or 0
+     *                 for full strength
+     *  @return a copy of this limit at the given rating
+     */
+    public SearchLimit withElo(int rating){
+        return new SearchLimit(movetime, depth, nodes, wtime, btime, winc, binc, movesToGo, skillLevel, rating);
+    }
+
+    public int getMovetime(){
+        return movetime;
+    }
+
+    public int getDepth(){
+        return depth;
+    }
+
+    public long getNodes(){
+        return nodes;
+    }
+
+    /**
+     *  @return true if the engine manages its own time from the clocks
+     */
+    public boolean hasClock(){
+        return wtime > 0 || btime > 0;
+    }
+
+    public long getWhiteTime(){
+        return wtime;
+    }
+
+    public long getBlackTime(){
+        return btime;
+    }
+
+    public int getMovesToGo(){
+        return movesToGo;
+    }
+
+    public int getSkillLevel(){
+        return skillLevel;
+    }
+
+    public int getElo(){
+        return elo;
+    }
+
+    /**
+     *  @return the arguments for "go", e.g. "depth 8 nodes 50000"
+     */
+    public String getGoArguments(){
+        StringBuilder result = new StringBuilder();
+        if (movetime > 0){ result.append(" movetime ").append(movetime); }
+        if (depth > 0){ result.append(" depth ").append(depth); }
+        if (nodes > 0){ result.append(" nodes ").append(nodes); }
+        if (hasClock()){
+            result.append(" wtime ").append(wtime).append(" btime ").append(btime);
+            if (winc > 0){ result.append(" winc ").append(winc); }
+            if (binc > 0){ result.append(" binc ").append(binc); }
+            if (movesToGo > 0){ result.append(" movestogo ").append(movesToGo); }
+        }
+        return result.length() == 0 ? "" : result.substring(1);
+    }
+
+    @Override
+    public String toString(){
+        StringBuilder result = new StringBuilder(getGoArguments());
+        if (skillLevel < FULL_SKILL){ result.append(" skill ").append(skillLevel); }
+        if (elo > 0){ result.append(" elo ").append(elo); }
+        return result.toString().trim();
+    }
+
+    @Override
+    public boolean equals(Object other){
+        if (!(other instanceof SearchLimit)){ return false; }
+        SearchLimit limit = (SearchLimit) other;
+        return toString().equals(limit.toString());
+    }
+
+    @Override
+    public int hashCode(){
+        return toString().hashCode();
+    }
+}
@@ -0,0 +1,121 @@
+package com.caffeine.engine;
+
+// First-Party Imports
+import java.util.*;
+
+/**
+ *  The outcome of one Stockfish search: the best move, the reply it
+ *  expects (to ponder on) and the score, with the principal variation they
+ *  came from.
+ */
+public class SearchResult{
+    private final String bestMove;
+    private final String ponder;  // null if Stockfish suggested none
+    private final int score;      // centipawns, or moves to mate when isMate()
+    private final boolean mate;
+    private final int depth;
+    private final List<String> pv;
+
+    /**
+     *  Holds what a search reported: its best move and the last principal
+     *  variation seen before it.
+     *
+     *  @param bestMove The move from the "bestmove" line, or "(none)"
+     *  @param ponder   The expected reply from the "bestmove" line, or null
+     *  @param score    The score in centipawns, or moves to mate if mate
+     *  @param mate     True if score counts moves to mate
+     *  @param depth    The depth the variation was found at
+     *  @param pv       The principal variation, starting with the best move
+     */
+    public SearchResult(String bestMove, String ponder, int score, boolean mate,
+                        int depth, List<String> pv){
+        this.bestMove = bestMove;
+        this.ponder = ponder;
+        this.score = score;
+        this.mate = mate;
+        this.depth = depth;
+        this.pv = Collections.unmodifiableList(new ArrayList<String>(pv));
+    }
+
+    /**
+     *  Reads a search's output, from its "info" lines up to "bestmove".
+     *
+     *  @param  lines Everything Stockfish printed for the search
+     *  @return the search's result
+     */
+    public static SearchResult parse(List<String> lines){
+        String bestMove = "(none)";
+        String ponder = null;
+        int score = 0;
+        boolean mate = false;
+        int depth = 0;
+        List<String> pv = new ArrayList<String>();
+
+        for (String line : lines){
+            String[] tokens = line.trim().split("\\s+");
+            if (tokens[0].equals("bestmove")){
+                if (tokens.length > 1){ bestMove = tokens[1]; }
+                if (tokens.length > 3 && tokens[2].equals("ponder")){ ponder = tokens[3]; }
+            } else if (tokens[0].equals("info") && line.contains(" pv ")){
+                List<String> linePv = new ArrayList<String>();
+                boolean firstVariation = true;
+                for (int i = 1; i < tokens.length; i++){
+                    if (tokens[i].equals("depth") && i + 1 < tokens.length){
+                        depth = Integer.parseInt(tokens[++i]);
+                    } else if (tokens[i].equals("multipv") && i + 1 < tokens.length){
+                        firstVariation = tokens[++i].equals("1");
+                    } else if (tokens[i].equals("score") && i + 2 < tokens.length){
+                        mate = tokens[i + 1].equals("mate");
+                        score = Integer.parseInt(tokens[i + 2]);
+                        i += 2;
+                    } else if (tokens[i].equals("pv")){
+                        linePv.addAll(Arrays.asList(tokens).subList(i + 1, tokens.length));
+                        break;
+                    }
+                }
+                if (firstVariation){ pv = linePv; }
+            }
+        }
+        if (pv.isEmpty() && !bestMove.equals("(none)")){ pv.add(bestMove); }
+        return new SearchResult(bestMove, ponder, score, mate, depth, pv);
+    }
+
+    public String getBestMove(){
+        return bestMove;
+    }
+
+    public String getPonder(){
+        return ponder;
+    }
+
+    /**
+     *  The score from the side to move's point of view.
+     *
+     *  @return centipawns, or moves to mate (negative if being mated)
+     */
+    public int getScore(){
+        return score;
+    }
+
+    public boolean isMate(){
+        return mate;
+    }
+
+    public int getDepth(){
+        return depth;
+    }
+
+    public List<String> getPv(){
+        return pv;
+    }
+
+    /**
+     *  A rough count of the memory this result holds, for sizing caches.
+     *
+     *  @return the estimated size in bytes
+     */
+    public int estimatedBytes(){
+        // Object headers and fields, plus about 48 bytes per short String
+        return 64 + 48 * (2 + pv.size());
+    }
+}
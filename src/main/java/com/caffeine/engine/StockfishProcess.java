@@ -0,0 +1,81 @@
+package com.caffeine.engine;
+
+// First-Party Imports
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+
+// Third-Party Imports
+import org.apache.commons.lang3.SystemUtils;
+
+/**
+ *  A running Stockfish, started from the bundled binary for this platform
+ *  in the bin directory. It keeps hold of the process, so that a Stockfish
+ *  that no longer answers can be killed.
+ */
+final class StockfishProcess {
+
+    private final Process process;
+    private final BufferedReader reader;
+    private final OutputStreamWriter writer;
+
+    /**
+     *  @throws IllegalStateException if there is no binary for this platform
+     *  @throws UncheckedIOException if the binary could not be started
+     */
+    StockfishProcess(){
+        File bin = new File(System.getProperty("user.dir"), "bin");
+        String name;
+        if (SystemUtils.IS_OS_WINDOWS){ name = "stockfish-win-64.exe"; }
+        else if (SystemUtils.IS_OS_MAC_OSX){ name = "stockfish-osx-64"; }
+        else { name = "stockfish-linux-64"; }
+        File binary = new File(bin, name);
+        if (!binary.canExecute()){
+            throw new IllegalStateException("No compatible binaries found in: " + bin.getAbsolutePath());
+        }
+        try {
+            process = new ProcessBuilder(binary.getAbsolutePath()).directory(bin).start();
+        } catch (IOException e){
+            throw new UncheckedIOException("Unable to start " + binary, e);
+        }
+        reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
+        writer = new OutputStreamWriter(process.getOutputStream());
+    }
+
+    /**
+     *  Writes one or more commands, each ending in a newline, at once.
+     *  Nothing is written once the process has exited.
+     *  @param  command The UCI command, or several separated by newlines
+     */
+    void write(String command){
+        try {
+            writer.write(command + "\n");
+            writer.flush();
+        } catch (IOException e){
+            // The process has exited; the reader finds out and reports it
+        }
+    }
+
+    /**
+     *  Reads the next line of output, waiting for one if needed.
+     *  @return the line, without its newline, or null once the process
+     *          has exited
+     */
+    String readLine(){
+        try {
+            return reader.readLine();
+        } catch (IOException e){
+            return null;
+        }
+    }
+
+    /**
+     *  Ends the process at once, without waiting for it to answer.
+     */
+    void kill(){
+        process.destroyForcibly();
+    }
+}
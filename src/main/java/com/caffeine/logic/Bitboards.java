@@ -0,0 +1,122 @@
+package com.caffeine.logic;
+
+/*  Precomputed attack tables for 64-bit bitboards. Bit n of a board is set
+    when square n is occupied, with a1 = 0, b1 = 1, ..., h8 = 63. Sliding
+    pieces use classical ray lookups: a ray is cut at the first blocker by
+    XOR-ing away the ray that continues past it. */
+
+public final class Bitboards {
+
+    // Ray directions. The first four step to higher squares, the rest lower.
+    private static final int NORTH = 0, NORTH_EAST = 1, EAST = 2, NORTH_WEST = 3;
+    private static final int SOUTH = 4, SOUTH_WEST = 5, WEST = 6, SOUTH_EAST = 7;
+    private static final int[] RANK_STEP = { 1, 1, 0, 1, -1, -1, 0, -1 };
+    private static final int[] FILE_STEP = { 0, 1, 1, -1, 0, -1, -1, 1 };
+
+    public static final long[] KNIGHT_ATTACKS = new long[64];
+    public static final long[] KING_ATTACKS = new long[64];
+    public static final long[][] PAWN_ATTACKS = new long[2][64]; // by color
+
+    // Empty-board slider reach, used to find pinning and checking pieces
+    public static final long[] BISHOP_RAYS = new long[64];
+    public static final long[] ROOK_RAYS = new long[64];
+
+    private static final long[][] RAYS = new long[8][64];
+    private static final long[][] BETWEEN = new long[64][64];
+
+    static {
+        for (int sq = 0; sq < 64; sq++){
+            int rank = sq >>> 3;
+            int file = sq & 7;
+
+            KNIGHT_ATTACKS[sq] = offsets(rank, file, new int[][]{
+                {2,1}, {2,-1}, {-2,1}, {-2,-1}, {1,2}, {1,-2}, {-1,2}, {-1,-2}
+            });
+            KING_ATTACKS[sq] = offsets(rank, file, new int[][]{
+                {1,0}, {1,1}, {0,1}, {-1,1}, {-1,0}, {-1,-1}, {0,-1}, {1,-1}
+            });
+            PAWN_ATTACKS[Position.WHITE][sq] = offsets(rank, file, new int[][]{ {1,-1}, {1,1} });
+            PAWN_ATTACKS[Position.BLACK][sq] = offsets(rank, file, new int[][]{ {-1,-1}, {-1,1} });
+
+            for (int dir = 0; dir < 8; dir++){
+                int r = rank + RANK_STEP[dir];
+                int f = file + FILE_STEP[dir];
+                long between = 0L;
+                while (r >= 0 && r < 8 && f >= 0 && f < 8){
+                    int target = r * 8 + f;
+                    RAYS[dir][sq] |= 1L << target;
+                    BETWEEN[sq][target] = between;
+                    between |= 1L << target;
+                    r += RANK_STEP[dir];
+                    f += FILE_STEP[dir];
+                }
+            }
+            BISHOP_RAYS[sq] = RAYS[NORTH_EAST][sq] | RAYS[NORTH_WEST][sq]
+                | RAYS[SOUTH_EAST][sq] | RAYS[SOUTH_WEST][sq];
+            ROOK_RAYS[sq] = RAYS[NORTH][sq] | RAYS[EAST][sq]
+                | RAYS[SOUTH][sq] | RAYS[WEST][sq];
+        }
+    }
+
+    private Bitboards(){}
+
+    /**
+     *  Builds the set of on-board squares reached by fixed jumps.
+     *
+     *  @param  rank  The starting rank, 0-7
+     *  @param  file  The starting file, 0-7
+     *  @param  steps Pairs of rank and file offsets
+     *  @return a bitboard of every reachable square
+     */
+    private static long offsets(int rank, int file, int[][] steps){
+        long result = 0L;
+        for (int[] step : steps){
+            int r = rank + step[0];
+            int f = file + step[1];
+            if (r >= 0 && r < 8 && f >= 0 && f < 8){
+                result |= 1L << (r * 8 + f);
+            }
+        }
+        return result;
+    }
+
+    /**
+     *  Squares reached along one ray, stopping at (and including) the first
+     *  occupied square.
+     */
+    private static long ray(int dir, int sq, long occupied){
+        long attacks = RAYS[dir][sq];
+        long blockers = attacks & occupied;
+        if (blockers != 0){
+            int blocker = (dir < SOUTH)
+                ? Long.numberOfTrailingZeros(blockers)
+                : 63 - Long.numberOfLeadingZeros(blockers);
+            attacks ^= RAYS[dir][blocker];
+        }
+        return attacks;
+    }
+
+    public static long bishopAttacks(int sq, long occupied){
+        return ray(NORTH_EAST, sq, occupied) | ray(NORTH_WEST, sq, occupied)
+            | ray(SOUTH_EAST, sq, occupied) | ray(SOUTH_WEST, sq, occupied);
+    }
+
+    public static long rookAttacks(int sq, long occupied){
+        return ray(NORTH, sq, occupied) | ray(EAST, sq, occupied)
+            | ray(SOUTH, sq, occupied) | ray(WEST, sq, occupied);
+    }
+
+    /**
+     *  Squares strictly between two squares on a shared rank, file or
+     *  diagonal.
+     *
+     *  @return the squares in between, or 0 if the squares are not aligned
+     */
+    public static long between(int from, int to){
+        return BETWEEN[from][to];
+    }
+
+    public static int lsb(long bitboard){
+        return Long.numberOfTrailingZeros(bitboard);
+    }
+}
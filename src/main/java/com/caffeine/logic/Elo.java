@@ -0,0 +1,118 @@
+package com.caffeine.logic;
+
+/*  Elo arithmetic for comparing players from game results. A score is the
+    fraction of points taken, with a win worth 1 and a draw 1/2. Intervals
+    are 95% normal approximations, from the spread of the per-game points. */
+
+public final class Elo {
+
+    // Two-sided 95% normal quantile
+    private static final double Z95 = 1.959964;
+
+    private Elo(){}
+
+    /**
+     *  The rating difference that predicts a given score.
+     *
+     *  @param  score The fraction of points taken, strictly between 0 and 1
+     *  @return the player's rating minus the opponent's
+     */
+    public static double difference(double score){
+        return -400.0 * Math.log10(1.0 / score - 1.0);
+    }
+
+    /**
+     *  The score predicted by a rating difference.
+     *
+     *  @param  difference The player's rating minus the opponent's
+     *  @return the expected fraction of points
+     */
+    public static double expectedScore(double difference){
+        return 1.0 / (1.0 + Math.pow(10.0, -difference / 400.0));
+    }
+
+    /**
+     *  Estimates the rating difference from a match, with a 95% interval.
+     *
+     *  @param  wins   Games the player won
+     *  @param  draws  Games drawn
+     *  @param  losses Games the player lost
+     *  @return {low, estimate, high}; infinite where every game was won or
+     *          lost, and all 0 if no games were played
+     */
+    public static double[] interval(int wins, int draws, int losses){
+        int games = wins + draws + losses;
+        if (games == 0){ return new double[]{ 0.0, 0.0, 0.0 }; }
+        double score = (wins + 0.5 * draws) / games;
+        // Variance of the points of one game around the mean score
+        double variance = (wins * sq(1.0 - score) + draws * sq(0.5 - score)
+                           + losses * sq(score)) / games;
+        double margin = Z95 * Math.sqrt(variance / games);
+        return new double[]{
+            bounded(score - margin), bounded(score), bounded(score + margin)
+        };
+    }
+
+    /**
+     *  Rates every player on one scale from a table of results, finding the
+     *  ratings whose expected scores match the points actually taken. Each
+     *  player is also given one draw against a player rated 0, which keeps
+     *  perfect and zero scores finite. The ratings are shifted so that they
+     *  average 0.
+     *
+     *  @param  points points[i][j] is what player i scored against player j
+     *  @param  games  games[i][j] is how many games i and j played
+     *  @return one rating per player
+     */
+    public static double[] ratings(double[][] points, int[][] games){
+        int players = points.length;
+        double[] ratings = new double[players];
+        double[] scored = new double[players];
+        int[] played = new int[players];
+        for (int i = 0; i < players; i++){
+            for (int j = 0; j < players; j++){
+                scored[i] += points[i][j];
+                played[i] += games[i][j];
+            }
+            // The draw against the 0-rated player
+            scored[i] += 0.5;
+        }
+
+        for (int iteration = 0; iteration < 10000; iteration++){
+            double change = 0.0;
+            for (int i = 0; i < players; i++){
+                if (played[i] == 0){ continue; }
+                double e0 = expectedScore(ratings[i]);
+                double expected = e0;
+                double slope = e0 * (1.0 - e0);
+                for (int j = 0; j < players; j++){
+                    if (games[i][j] == 0){ continue; }
+                    double e = expectedScore(ratings[i] - ratings[j]);
+                    expected += games[i][j] * e;
+                    slope += games[i][j] * e * (1.0 - e);
+                }
+                // One Newton step on this player's rating, in Elo units
+                double step = (scored[i] - expected) / slope * 400.0 / Math.log(10.0);
+                step = Math.max(-200.0, Math.min(200.0, step));
+                ratings[i] += step;
+                change = Math.max(change, Math.abs(step));
+            }
+            if (change < 1e-6){ break; }
+        }
+
+        double mean = 0.0;
+        for (double rating : ratings){ mean += rating / players; }
+        for (int i = 0; i < players; i++){ ratings[i] -= mean; }
+        return ratings;
+    }
+
+    private static double bounded(double score){
+        if (score <= 0.0){ return Double.NEGATIVE_INFINITY; }
+        if (score >= 1.0){ return Double.POSITIVE_INFINITY; }
+        return difference(score);
+    }
+
+    private static double sq(double x){
+        return x * x;
+    }
+}
@@ -0,0 +1,217 @@
+package com.caffeine.logic;
+
+/**
+ *  Reads and writes Forsyth-Edwards Notation in a single pass over the
+ *  characters, without splitting the string or boxing anything, so that
+ *  positions can be validated and loaded in bulk without creating garbage.
+ *  Boards are 64 entries of color * 6 + type (Position.EMPTY if empty)
+ *  with a1 = 0, as Position stores them.
+ *
+ *  Proper notation for a FEN string can be found here:
+ *  https://en.wikipedia.org/wiki/Forsyth%E2%80%93Edwards_Notation
+ */
+public final class FenCodec {
+
+    // Indices into the state array filled by parse()
+    public static final int SIDE = 0;
+    public static final int CASTLING = 1;
+    public static final int EN_PASSANT = 2;   // square, or -1 for none
+    public static final int HALFMOVE = 3;
+    public static final int FULLMOVE = 4;
+    public static final int STATE_SIZE = 5;
+
+    private static final String PIECE_CHARS = "PNBRQKpnbrqk";
+
+    private FenCodec(){}
+
+    /**
+     *  Checks whether a FEN string is UCI compliant.
+     *
+     *  @param  fen The string to be validated
+     *  @return true if valid, or false if invalid
+     */
+    public static boolean isValid(CharSequence fen){
+        return parse(fen, null, null);
+    }
+
+    /**
+     *  Parses a FEN string, validating it as it goes. Surrounding whitespace
+     *  is ignored; the six fields must be separated by single spaces.
+     *  Castling rights and the en passant square are returned as written,
+     *  without checking them against the pieces.
+     *
+     *  @param  fen   The string to parse
+     *  @param  board 64 entries to fill, or null to only validate
+     *  @param  state STATE_SIZE entries to fill (SIDE holds Position.WHITE
+     *                or Position.BLACK, CASTLING the Position castling
+     *                flags), or null to only validate
+     *  @return true if valid; if false, board and state hold partial results
+     */
+    public static boolean parse(CharSequence fen, int[] board, int[] state){
+        if (fen == null){ return false; }
+        int end = fen.length();
+        int i = 0;
+        while (i < end && fen.charAt(i) <= ' '){ i++; }
+        while (end > i && fen.charAt(end - 1) <= ' '){ end--; }
+        if (i == end){ return false; }
+
+        //  Field 1: Piece Placement from Rows 8 to 1 delimited by '/'.
+        if (board != null){
+            for (int sq = 0; sq < 64; sq++){ board[sq] = Position.EMPTY; }
+        }
+        int rank = 7;
+        int file = 0;
+        for (; i < end && fen.charAt(i) != ' '; i++){
+            char ch = fen.charAt(i);
+            if (ch == '/'){
+                if (file != 8 || rank == 0){ return false; }
+                rank--;
+                file = 0;
+            } else if (ch >= '1' && ch <= '8'){
+                file += ch - '0';
+                if (file > 8){ return false; }
+            } else {
+                int piece = PIECE_CHARS.indexOf(ch);
+                if (piece < 0 || file == 8){ return false; }
+                if (board != null){ board[rank * 8 + file] = piece; }
+                file++;
+            }
+        }
+        if (rank != 0 || file != 8){ return false; }
+
+        //  Field 2: Active Color. Can only be "w" or "b".
+        if (!separator(fen, i++, end) || i + 1 > end){ return false; }
+        char active = fen.charAt(i++);
+        if (active != 'w' && active != 'b'){ return false; }
+        if (state != null){ state[SIDE] = (active == 'w') ? Position.WHITE : Position.BLACK; }
+
+        //  Field 3: Castling Availability, "-" or up to four of "KQkq".
+        if (!separator(fen, i++, end) || i >= end){ return false; }
+        int castling = 0;
+        if (fen.charAt(i) == '-'){
+            i++;
+        } else {
+            for (; i < end && fen.charAt(i) != ' '; i++){
+                int flag;
+                switch (fen.charAt(i)){
+                    case 'K': flag = Position.WHITE_KINGSIDE; break;
+                    case 'Q': flag = Position.WHITE_QUEENSIDE; break;
+                    case 'k': flag = Position.BLACK_KINGSIDE; break;
+                    case 'q': flag = Position.BLACK_QUEENSIDE; break;
+                    default: return false;
+                }
+                // Each right only once; "KKkq" is invalid.
+                if ((castling & flag) != 0){ return false; }
+                castling |= flag;
+            }
+        }
+        if (state != null){ state[CASTLING] = castling; }
+
+        //  Field 4: En Passant, either '-' or a board location.
+        if (!separator(fen, i++, end) || i >= end){ return false; }
+        int enPassant = -1;
+        if (fen.charAt(i) == '-'){
+            i++;
+        } else {
+            if (i + 2 > end){ return false; }
+            char f = Character.toLowerCase(fen.charAt(i++));
+            char r = fen.charAt(i++);
+            if (f < 'a' || f > 'h' || r < '1' || r > '8'){ return false; }
+            enPassant = (r - '1') * 8 + (f - 'a');
+        }
+        if (state != null){ state[EN_PASSANT] = enPassant; }
+
+        //  Field 5: Halfmove Clock, a non-negative integer.
+        if (!separator(fen, i++, end)){ return false; }
+        int fieldEnd = fieldEnd(fen, i, end);
+        int halfmove = parseCount(fen, i, fieldEnd);
+        if (halfmove < 0){ return false; }
+        if (state != null){ state[HALFMOVE] = halfmove; }
+        i = fieldEnd;
+
+        //  Field 6: Fullmove Number, a non-negative integer.
+        if (!separator(fen, i++, end)){ return false; }
+        int fullmove = parseCount(fen, i, end);
+        if (fullmove < 0){ return false; }
+        if (state != null){ state[FULLMOVE] = fullmove; }
+        return true;
+    }
+
+    /**
+     *  Writes a position as a FEN string.
+     *
+     *  @param  out       Where to append the FEN
+     *  @param  board     64 entries of color * 6 + type, or Position.EMPTY
+     *  @param  side      Position.WHITE or Position.BLACK
+     *  @param  castling  The Position castling flags
+     *  @param  enPassant The en passant square, or -1 for none
+     *  @param  halfmove  The halfmove clock
+     *  @param  fullmove  The fullmove number
+     *  @return out, for chaining
+     */
+    public static StringBuilder write(StringBuilder out, int[] board, int side, int castling,
+                                      int enPassant, int halfmove, int fullmove){
+        for (int rank = 7; rank >= 0; rank--){
+            int empty = 0;
+            for (int file = 0; file < 8; file++){
+                int piece = board[rank * 8 + file];
+                if (piece == Position.EMPTY){
+                    empty++;
+                    continue;
+                }
+                if (empty > 0){ out.append((char) ('0' + empty)); }
+                empty = 0;
+                out.append(PIECE_CHARS.charAt(piece));
+            }
+            if (empty > 0){ out.append((char) ('0' + empty)); }
+            if (rank > 0){ out.append('/'); }
+        }
+        out.append(side == Position.WHITE ? " w " : " b ");
+        if (castling == 0){ out.append('-'); }
+        if ((castling & Position.WHITE_KINGSIDE) != 0){ out.append('K'); }
+        if ((castling & Position.WHITE_QUEENSIDE) != 0){ out.append('Q'); }
+        if ((castling & Position.BLACK_KINGSIDE) != 0){ out.append('k'); }
+        if ((castling & Position.BLACK_QUEENSIDE) != 0){ out.append('q'); }
+        out.append(' ');
+        if (enPassant == -1){
+            out.append('-');
+        } else {
+            out.append((char) ('a' + (enPassant & 7))).append((char) ('1' + (enPassant >>> 3)));
+        }
+        return out.append(' ').append(halfmove).append(' ').append(fullmove);
+    }
+
+    private static boolean separator(CharSequence fen, int i, int end){
+        return i < end && fen.charAt(i) == ' ';
+    }
+
+    private static int fieldEnd(CharSequence fen, int i, int end){
+        while (i < end && fen.charAt(i) != ' '){ i++; }
+        return i;
+    }
+
+    /**
+     *  Reads a clock field the way Integer.parseInt() would, sign included.
+     *
+     *  @return the value, or -1 if it is not a non-negative int
+     */
+    private static int parseCount(CharSequence fen, int start, int end){
+        int i = start;
+        boolean negative = false;
+        if (i < end && (fen.charAt(i) == '+' || fen.charAt(i) == '-')){
+            negative = fen.charAt(i) == '-';
+            i++;
+        }
+        if (i == end){ return -1; }
+        long value = 0;
+        for (; i < end; i++){
+            char ch = fen.charAt(i);
+            if (ch < '0' || ch > '9'){ return -1; }
+            value = value * 10 + (ch - '0');
+            if (value > Integer.MAX_VALUE){ return -1; }
+        }
+        // "-0" is zero, any other negative number is out
+        if (negative && value != 0){ return -1; }
+        return (int) value;
+    }
+}
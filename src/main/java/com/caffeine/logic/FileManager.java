@@ -1,8 +1,6 @@
 package com.caffeine.logic;
 
-import com.caffeine.Chess;
-import com.caffeine.view.Core;
-import com.caffeine.view.ViewUtils;
+import com.caffeine.engine.Core;
 
 import java.io.*;
 import java.util.Scanner;
@@ -11,26 +9,38 @@ import java.util.ArrayList;
 public class FileManager {
     /**
      * Saves the game state in PGN format to the correct file.
+     * The time left is taken from the game's "Time" tag.
      *
+     * @param game      The game to be saved
      * @param fileName  The pgn file to be written
+     * @return true if saved, false if the file could not be written
      */
-    public static void save(String fileName) {
-        File file = new File("SavedGames/" + fileName);
+    public static boolean save(Game game, String fileName) {
+        return save(game, new File("SavedGames/" + fileName));
+    }
+
+    /**
+     * Saves the game state in PGN format to any file.
+     *
+     * @param game  The game to be saved
+     * @param file  The pgn file to be written
+     * @return true if saved, false if the file could not be written
+     */
+    public static boolean save(Game game, File file) {
         PrintWriter output;
         try {
             output = new PrintWriter(file);
         } catch (IOException io) {
-            Core.statusPanel.setText("Unable to save to file.");
-            return;
+            return false;
         }
-        output.println("[Event \"" + Chess.game.pgnTags.get("Event") + "\"]");
-        output.println("[Site \"" + Chess.game.pgnTags.get("Site") + "\"]");
-        output.println("[Date \"" + Chess.game.pgnTags.get("Date") + "\"]");
-        output.println("[Round \"" + Chess.game.pgnTags.get("Round") + "\"]");
-        output.println("[White \"" + Chess.game.pgnTags.get("White") + "\"]");
-        output.println("[Black \"" + Chess.game.pgnTags.get("Black") + "\"]");
+        output.println("[Event \"" + game.pgnTags.get("Event") + "\"]");
+        output.println("[Site \"" + game.pgnTags.get("Site") + "\"]");
+        output.println("[Date \"" + game.pgnTags.get("Date") + "\"]");
+        output.println("[Round \"" + game.pgnTags.get("Round") + "\"]");
+        output.println("[White \"" + game.pgnTags.get("White") + "\"]");
+        output.println("[Black \"" + game.pgnTags.get("Black") + "\"]");
         output.print("[Result \"");
-        switch (Chess.game.gameResult) {
+        switch (game.gameResult) {
             case 0:
                 output.print("*");
                 break;
@@ -41,17 +51,19 @@ public class FileManager {
                 output.print("0-1");
                 break;
             case 3:
+            case 4:
                 output.print("1/2-1/2");
                 break;
         }
         output.println("\"]");
-        output.println("[Time \"" + Core.timerPanel.getTimeLeft() + "\"]");
-        output.println("[Mode \"" + Chess.game.getMode() + "\"]");
-        output.println("[FEN \"" + Chess.game.pgnTags.get("FEN") + "\"]");
+        if (game.pgnTags.get("Time") != null)
+            output.println("[Time \"" + game.pgnTags.get("Time") + "\"]");
+        output.println("[Mode \"" + game.getMode() + "\"]");
+        output.println("[FEN \"" + game.pgnTags.get("FEN") + "\"]");
         output.println();
         int currMoveNum = 1;
         String currHalfMove = null;
-        for (String halfMove : Chess.game.moveHistory) {
+        for (String halfMove : game.moveHistory) {
             if (currHalfMove == null) {
                 currHalfMove = halfMove;
             } else {
@@ -65,7 +77,7 @@ public class FileManager {
             String extra = currMoveNum + ". " + currHalfMove;
             output.print(extra + " ");
         }
-        switch (Chess.game.gameResult) {
+        switch (game.gameResult) {
             case 0:
                 output.println();
                 break;
@@ -76,26 +88,32 @@ public class FileManager {
                 output.println("0-1");
                 break;
             case 3:
-                output.println();
+            case 4:
+                output.println("1/2-1/2");
                 break;
         }
 
         output.close();
+        return true;
     }
 
     /**
      * Loads the game state from the correct file in PGN format.
+     * The time left, if saved, is in the new game's "Time" tag.
      *
      * @param fileName  The pgn file to be read
+     * @param engine    The engine to play the CPU side of the loaded game
+     * @param listener  Told about the loaded game, and about why loading failed
+     * @return the loaded game, or null if the file could not be loaded
      */
-    public static void load(String fileName) {
+    public static Game load(String fileName, Core engine, GameListener listener) {
         File file = new File("SavedGames/" + fileName);
         Scanner input;
         try {
             input = new Scanner(file);
         } catch (IOException io) {
-            Core.statusPanel.setText("Unable to load from file.");
-            return;
+            listener.statusChanged(null, "Unable to load from file.");
+            return null;
         }
         String fileLine = "";
         String userSide = "white";
@@ -107,8 +125,8 @@ public class FileManager {
                 userSide = fileLine.split(" ")[0].substring(1);
             if (fileLine.contains("Result")) {
                 if (!fileLine.contains("*")) {
-                    Core.statusPanel.setText("Unable to load from file. - Not in progress.");
-                    return;
+                    listener.statusChanged(null, "Unable to load from file. - Not in progress.");
+                    return null;
                 }
             }
             if (fileLine.contains("Time")) {
@@ -124,35 +142,27 @@ public class FileManager {
         }
         String fen = fileLine.split("\"")[1];
         if (!Utils.isValidFEN(fen)) {
-            Core.statusPanel.setText("Unable to load from file. - Invalid FEN String.");
-            return;
+            listener.statusChanged(null, "Unable to load from file. - Invalid FEN String.");
+            return null;
         }
-        ViewUtils.refreshBoard();
-        ViewUtils.clearTakenPanel();
-        ViewUtils.clearHistoryPanel();
-        Chess.game = new Game();
-        Chess.game.startGame();
-        Chess.game.setSide(userSide);
-        if (userSide.equals("White")) Chess.game.whiteActive = true;
-        else Chess.game.whiteActive = false;
-        Chess.game.loadFEN(fen);
-        Chess.game.setMode(mode);
+        Game game = new Game(engine, listener);
+        game.startGame();
+        game.setSide(userSide);
+        if (userSide.equals("White")) game.whiteActive = true;
+        else game.whiteActive = false;
+        game.loadFEN(fen);
+        game.setMode(mode);
         input.nextLine();
         String moveHist = input.nextLine();
-        if (moveHist.length() < 1) return;
+        if (!timeLeft.equals("")) game.pgnTags.put("Time", timeLeft);
+        if (moveHist.length() < 1) return game;
         String[] moves = moveHist.split(" ");
         for (String move : moves) {
             if (move.charAt(0) > '9') {
-                Chess.game.addToMoveHistory(move);
+                game.addToMoveHistory(move);
             }
         }
-        if (!timeLeft.equals("")) {
-            Core.timerPanel.setTimeLeft(timeLeft);
-        } else {
-            // default to half hour left
-            Core.timerPanel.setTimeLeft("180000");
-        }
-        Core.timerPanel.resumeTimer();
         input.close();
+        return game;
     }
 }
@@ -1,17 +1,25 @@
 package com.caffeine.logic;
 
-import com.caffeine.Chess;
+import com.caffeine.engine.Core;
+import com.caffeine.engine.SearchLimit;
 import com.caffeine.logic.Utils;
-import com.caffeine.view.Core;
-import com.caffeine.view.ViewUtils;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public class Game {
-    public ArrayList<Piece> pieces = new ArrayList<Piece>();
+    private static final Logger log = LoggerFactory.getLogger(Game.class);
+
+    // The engine playing the CPU side, and who hears about changes
+    private final Core engine;
+    private final GameListener listener;
+
     public ArrayList<String> moveHistory = new ArrayList<String>();
-    protected ArrayList<String> fenHistory = new ArrayList<String>();
-    protected ArrayList<String> dupHistory = new ArrayList<String>();
+    // Occurrences of each position this game, by Zobrist key
+    protected RepetitionTable repetitions = new RepetitionTable();
 
     public boolean gameStarted = false;
     public int gameResult = 0;  // 0 = ongoing
@@ -21,7 +29,19 @@ public class Game {
                                 // 4 = draw
 
     private int mode = 0; // 0 = easy, 1 = medium, 2 = hard
-    private static final int[] timeoutsForModes = {1, 5, 10};
+
+    // How the engine searches in each mode. Depth limits play the same on
+    // any machine; each can be overridden at startup, e.g. with
+    // -Dcaffeine.mode.easy="depth 3 skill 1"
+    private static final SearchLimit[] defaultModeLimits = {
+        modeLimit("easy", "depth 5 skill 3"),
+        modeLimit("medium", "depth 8 skill 12"),
+        modeLimit("hard", "depth 12")
+    };
+    private final SearchLimit[] modeLimits = defaultModeLimits.clone();
+
+    // Both sides' time, or null for an untimed game
+    private GameClock clock = null;
 
     private static final String startFEN = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
 
@@ -31,15 +51,44 @@ public class Game {
     protected boolean userWhite;
     protected String captByBlack;
     protected String captByWhite;
-    protected boolean threeMoveDraw = false;
 
-    // used for en passant checking and undoing moves
-    protected String prevFEN = null;
-    protected String lastFEN = null;
+    // True while the engine is searching for the CPU's reply
+    protected volatile boolean cpuThinking = false;
+
     protected String currFEN = startFEN;
 
-    protected String enPassantLoc = "-";
-    protected Piece enPassantPiece = null;
+    // One record per ply played since the game started or was loaded, so
+    // any number of plies can be undone. Plies from plyCount up to plyTop
+    // were undone and can be redone until a new move is made.
+    private int[] plyMoves = new int[64];
+    private Piece[] plyMoved = new Piece[64];     // the piece that moved
+    private Piece[] plyTaken = new Piece[64];     // the piece captured, or null
+    private Piece[] plyPromoted = new Piece[64];  // the piece promoted to, or null
+    private String[] plyNotation = new String[64];
+    private int plyCount = 0;
+    private int plyTop = 0;
+
+    // Scratch space for reading a FEN onto the board
+    private final int[] fenBoard = new int[64];
+    private final int[] fenState = new int[FenCodec.STATE_SIZE];
+
+    // How many of each piece type (pawn to king) one side starts with
+    private static final int[] FULL_SET = {8, 2, 2, 2, 1, 1};
+
+    // The pieces by square (rank * 8 + file), and the squares the last
+    // move or board load changed
+    protected Piece[] board = new Piece[64];
+    private final int[] changed = new int[64];
+    private int changedCount = 0;
+
+    // The pieces on the board by side (0 = white, 1 = black). Each Piece
+    // remembers its slot, so adding and removing are constant time.
+    private final Piece[][] sidePieces = new Piece[2][64];
+    private final int[] sideCount = new int[2];
+    private List<Piece> piecesView = null; // built on demand by getPieces()
+
+    // Local copy of the board used to answer legality questions
+    protected Position position = new Position(startFEN);
 
     //  Unicode chess pieces
     protected static final String king = "\u265A";
@@ -49,13 +98,24 @@ public class Game {
     protected static final String knight = "\u265E";
     protected static final String pawn = "\u265F";
 
-    public Game() {
+    /**
+     *  Creates a game. Games share nothing, so any number can be played at
+     *  once as long as each has its own engine.
+     *
+     *  @param engine   The engine that plays the CPU side of this game
+     *  @param listener Told about every change, or GameListener.NONE
+     */
+    public Game(Core engine, GameListener listener) {
+        this.engine = engine;
+        this.listener = listener;
         whiteActive = true;
         userWhite = true;
         captByBlack = "";
         captByWhite = "";
         initializePGN();
-        Chess.engine.setFEN(startFEN);
+        // Abandon any search still running for a previous game
+        engine.newGame();
+        repetitions.increment(position.getKey());
     }
 
     /**
@@ -70,13 +130,61 @@ public class Game {
         pgnTags.put("FEN", currFEN);
     }
 
+    /**
+     *  Getter for the engine playing the CPU side of this game.
+     *
+     *  @return the engine
+     */
+    public Core getEngine() {
+        return engine;
+    }
+
+    /**
+     *  Gets a PGN tag, e.g. "White" or "FEN".
+     *
+     *  @param  name The tag name
+     *  @return the tag value, or null if the tag is not set
+     */
+    public String getTag(String name) {
+        return pgnTags.get(name);
+    }
+
+    /**
+     *  Sets a PGN tag, e.g. "Time" before saving.
+     *
+     *  @param name  The tag name
+     *  @param value The tag value
+     */
+    public void setTag(String name, String value) {
+        pgnTags.put(name, value);
+    }
+
     /**
      *  Starts the game.
      */
     public void startGame() {
         gameStarted = true;
         initializesPieces();
-        ViewUtils.refreshBoard();
+        if (clock != null) clock.start(whiteActive);
+        listener.boardChanged(this);
+    }
+
+    /**
+     *  Puts the game on a clock. Once the game has started, the side to
+     *  move's time runs, and the CPU's searches are timed from the clock.
+     *
+     *  @param clock Both sides' time, or null for an untimed game
+     */
+    public void setClock(GameClock clock) {
+        this.clock = clock;
+        if (clock != null && gameStarted) clock.start(whiteActive);
+    }
+
+    /**
+     *  @return the game's clock, or null if the game is untimed
+     */
+    public GameClock getClock() {
+        return clock;
     }
 
 
@@ -120,6 +228,43 @@ public class Game {
         else setMode(0);
     }
 
+    /**
+     *  Changes how the engine searches in one mode, for this game only.
+     *
+     *  @param mode  0 = easy, 1 = medium, 2 = hard
+     *  @param limit How far and how well the engine may search
+     */
+    public void setModeLimit(int mode, SearchLimit limit) {
+        modeLimits[mode] = limit;
+    }
+
+    /**
+     *  @return how the engine searches in the current mode
+     */
+    public SearchLimit getModeLimit() {
+        return modeLimits[mode];
+    }
+
+    /**
+     *  How the engine searches in a mode unless a game changes it.
+     *
+     *  @param  mode 0 = easy, 1 = medium, 2 = hard
+     *  @return the mode's search limit
+     */
+    public static SearchLimit getDefaultModeLimit(int mode) {
+        return defaultModeLimits[mode];
+    }
+
+    private static SearchLimit modeLimit(String mode, String fallback) {
+        String limit = System.getProperty("caffeine.mode." + mode, fallback);
+        try {
+            return SearchLimit.parse(limit);
+        } catch (IllegalArgumentException e) {
+            log.warn("Ignoring caffeine.mode.{}: {}", mode, e.getMessage());
+            return SearchLimit.parse(fallback);
+        }
+    }
+
     /**
      * Returns the mode of the CPU opponent.
      *
@@ -155,7 +300,7 @@ public class Game {
      *  @param taken  The piece taken.
      */
     public void takePiece(Piece taken) {
-        pieces.remove(taken);
+        removeFromSide(taken);
         if (taken.isWhite())
             captureWhitePiece(taken.getType());
         else
@@ -169,7 +314,7 @@ public class Game {
      */
     public void captureBlackPiece(String piece) {
         captByWhite = captByWhite.concat(" " + piece);
-        Core.takenPanel.setCaptByWhite(captByWhite);
+        listener.capturesChanged(this, captByWhite, captByBlack);
     }
 
     /**
@@ -179,7 +324,7 @@ public class Game {
      */
     public void captureWhitePiece(String piece) {
         captByBlack = captByBlack.concat(" " + piece);
-        Core.takenPanel.setCaptByBlack(captByBlack);
+        listener.capturesChanged(this, captByWhite, captByBlack);
     }
 
     /**
@@ -206,7 +351,7 @@ public class Game {
      */
     public void addToMoveHistory(String currMove) {
         moveHistory.add(currMove);
-        Core.historyPanel.updateMoveHistory(moveHistory);
+        listener.moveHistoryChanged(this, moveHistory);
     }
 
 
@@ -216,8 +361,7 @@ public class Game {
      * @param result Int that signifies the result of the game
      */
     public void endGame(int result) {
-        boolean timerEnded = Core.timerPanel.isTimeOut();
-        if (timerEnded) {
+        if (result == GameStatus.TIME_OUT) {
             if (userWhite) {
                 gameResult = 2;
             } else {
@@ -227,7 +371,23 @@ public class Game {
             gameResult = result;
         }
         gameStarted = false;
-        ViewUtils.endGame(gameResult);
+        if (clock != null) clock.stop();
+        listener.gameEnded(this, gameResult);
+    }
+
+    /**
+     *  Plays a move given in UCI notation, e.g. "e2e4" or "e7e8q".
+     *
+     *  @param  uci The move to play
+     *  @return true if move is successful, false otherwise
+     */
+    public boolean move(String uci) {
+        int legalMove = position.parseMove(uci);
+        if (legalMove == Move.NONE) return false;
+
+        engine.move(Move.toUci(legalMove));
+        doMove(legalMove);
+        return true;
     }
 
     /**
@@ -240,14 +400,12 @@ public class Game {
      *  @return true if move is successful, false otherwise
      */
     public boolean move(int oldRank, int oldFile, int newRank, int newFile) {
-        String oldLoc = (char)(oldFile+97) + "" + (oldRank+1);
-        String newLoc = (char)(newFile+97) + "" + (newRank+1);
+        int legalMove = position.findMove(Square.of(oldRank, oldFile), Square.of(newRank, newFile), 0);
+        if (legalMove == Move.NONE) return false;
 
-        if (Chess.engine.move(oldLoc+newLoc)) {
-            doMove(oldRank, oldFile, newRank, newFile);
-            return true;
-        }
-        return false;
+        engine.move(Move.toUci(legalMove));
+        doMove(legalMove);
+        return true;
     }
 
     /**
@@ -261,14 +419,23 @@ public class Game {
      *  @return true if move is successful, false otherwise
      */
     public boolean moveP(int oldRank, int oldFile, int newRank, int newFile, char type) {
-        String oldLoc = (char)(oldFile+97) + "" + (oldRank+1);
-        String newLoc = (char)(newFile+97) + "" + (newRank+1);
+        int promotion = " nbrq".indexOf(Character.toLowerCase(type));
+        if (promotion < 0) return false;
+        int legalMove = position.findMove(Square.of(oldRank, oldFile), Square.of(newRank, newFile), promotion);
+        if (legalMove == Move.NONE) return false;
+
+        engine.move(Move.toUci(legalMove));
+        doMove(legalMove);
+        return true;
+    }
 
-        if (Chess.engine.move(oldLoc+newLoc+type)) {
-            doMove(oldRank, oldFile, newRank, newFile);
-            return true;
-        }
-        return false;
+    /**
+     *  Getter for whether the CPU is still deciding on its move.
+     *
+     *  @return true while a requested CPU move has not been applied yet
+     */
+    public boolean isCpuThinking() {
+        return cpuThinking;
     }
 
     /**
@@ -277,95 +444,261 @@ public class Game {
      *  @return The move made if successful. null otherwise.
      */
     public String cpuMove() {
-        int timeout = timeoutsForModes[mode];
-        String move = Chess.engine.cpuMove(timeout);
-        if (move.equals("(none)")) return null;
-        char[] moveData = move.toCharArray();
-        int oldRank = (int) moveData[1] - '1';
-        int oldFile = (int) moveData[0] - 'a';
-        int newRank = (int) moveData[3] - '1';
-        int newFile = (int) moveData[2] - 'a';
+        return cpuMove(cpuLimit());
+    }
+
+    /**
+     *  Move a piece as decided by the engine within a given think time,
+     *  whatever the mode, and return the move made.
+     *
+     *  @param  timeout How long (in ms) the engine may think
+     *  @return The move made if successful. null otherwise.
+     */
+    public String cpuMove(int timeout) {
+        return cpuMove(SearchLimit.movetime(timeout));
+    }
+
+    /**
+     *  Move a piece as decided by the engine within a given search limit,
+     *  whatever the mode, and return the move made.
+     *
+     *  @param  limit How far and how well the engine may search
+     *  @return The move made if successful. null otherwise.
+     */
+    public String cpuMove(SearchLimit limit) {
+        return applyCpuMove(engine.cpuMove(limit));
+    }
 
-        doMove(oldRank, oldFile, newRank, newFile);
+    /**
+     *  Starts the engine searching for the CPU's move without blocking.
+     *  Once the future completes, pass its result to applyCpuMove() on the
+     *  thread that owns the game (the Swing event thread in the GUI).
+     *
+     *  @return a future completed with the engine's move, or "(none)"
+     */
+    public CompletableFuture<String> requestCpuMove() {
+        cpuThinking = true;
+        return engine.cpuMoveAsync(cpuLimit());
+    }
 
+    /**
+     *  The current mode's search limit. On a running clock the engine is
+     *  also given both sides' time, so that it spends more on hard moves
+     *  and little on forced ones.
+     *
+     *  @return how the engine should search for the CPU's move
+     */
+    private SearchLimit cpuLimit() {
+        SearchLimit limit = modeLimits[mode];
+        if (clock == null || !clock.isRunning()) return limit;
+        return limit.withClock(clock.getRemaining(true), clock.getRemaining(false),
+            clock.getIncrement(), clock.getIncrement(), clock.getMovesToGo(whiteActive));
+    }
+
+    /**
+     *  Applies a move the engine has already made on its own board.
+     *
+     *  @param  move The engine's move, or "(none)" if it had none
+     *  @return The move made if successful. null otherwise.
+     */
+    public String applyCpuMove(String move) {
+        cpuThinking = false;
+        if (move == null || move.equals("(none)")) return null;
+
+        int legalMove = position.parseMove(move);
+        if (legalMove != Move.NONE) {
+            doMove(legalMove);
+        } else {
+            // Out of step with the engine. Its board after the move becomes
+            // the game's new start, with no moves before it to undo or
+            // record, as if it had been loaded. Loading counts what its
+            // board is missing as captured, so start the counts over.
+            moveHistory.clear();
+            listener.moveHistoryChanged(this, moveHistory);
+            captByWhite = captByBlack = "";
+            listener.capturesChanged(this, captByWhite, captByBlack);
+            loadFEN(engine.getFEN());
+            whiteActive = position.getSideToMove() == Position.WHITE;
+            if (clock != null && clock.isRunning()) {
+                clock.press();
+                clock.start(whiteActive);
+            }
+        }
         return move;
     }
 
     /**
      *  Do the move functionality: taking pieces, en passant checking, setting pieces array
      *
-     *  @param  oldRank The current horizontal coordinate
-     *  @param  oldFile The current vertical coordinate
-     *  @param  newRank The new horizontal coordinate to move to
-     *  @param  newFile The new vertical coordinate to move to
+     *  @param  move A legal move in the current position, as encoded by Position
+     */
+    public void doMove(int move) {
+        if (plyCount == plyMoves.length) growPlies();
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int takenSquare = Move.isEnPassant(move) ? (from & ~7) | (to & 7) : to;
+
+        plyMoves[plyCount] = move;
+        plyMoved[plyCount] = board[from];
+        plyTaken[plyCount] = board[takenSquare];
+        plyPromoted[plyCount] = null;
+        plyNotation[plyCount] = notation(move, board[takenSquare] != null);
+        // A new move ends any line that could have been redone
+        plyTop = plyCount + 1;
+
+        changedCount = 0;
+        replayPly();
+        if (clock != null && clock.isRunning()) {
+            clock.press();
+            clock.start(whiteActive);
+        }
+    }
+
+    /**
+     *  Plays the ply recorded at plyCount: on the position, on the board,
+     *  in the captured pieces and in the move history.
      */
-    public void doMove(int oldRank, int oldFile, int newRank, int newFile) {
-        boolean pieceTaken = false;
+    private void replayPly() {
+        int ply = plyCount;
+        int move = plyMoves[ply];
+        int from = Move.from(move);
+        int to = Move.to(move);
+        Piece moving = plyMoved[ply];
+        Piece taken = plyTaken[ply];
 
-        Piece taken = getPieceMatching(newRank,newFile);
-        Piece moving = getPieceMatching(oldRank, oldFile);
+        position.makeMove(move);
 
         if (taken != null) {
             takePiece(taken);
-            pieceTaken = true;
+            setSquare(taken.getRank() * 8 + taken.getFile(), null);
+        }
+        setSquare(from, null);
+        setSquare(to, moving);
+        moving.moveTo(to / 8, to % 8);
+
+        // Castling: the rook jumps over the king
+        if (Move.isCastle(move)) {
+            int rookFrom = (to > from) ? to + 1 : to - 2;
+            int rookTo = (to > from) ? to - 1 : to + 1;
+            Piece rook = board[rookFrom];
+            setSquare(rookFrom, null);
+            setSquare(rookTo, rook);
+            rook.moveTo(rookTo / 8, rookTo % 8);
         }
 
-        prevFEN = lastFEN;
-        lastFEN = currFEN;
-        currFEN = Chess.engine.getFEN();
+        if (Move.promotion(move) != 0) {
+            if (plyPromoted[ply] == null) {
+                plyPromoted[ply] = Piece.fromCode(position.pieceAt(to), to / 8, to % 8);
+            }
+            removeFromSide(moving);
+            addToSide(plyPromoted[ply]);
+            setSquare(to, plyPromoted[ply]);
+        }
+
+        plyCount++;
+        currFEN = position.getFEN();
         pgnTags.put("FEN", currFEN);
+        repetitions.increment(position.getKey());
+        addToMoveHistory(plyNotation[ply]);
+        whiteActive = !whiteActive;
+    }
 
-        updateThreeMoveDraw(currFEN);
-
-        // check for en passant and taking of en passant
-        if (!enPassantLoc.equals("-")) {
-            if (moving.getType().equals(pawn)) {
-                int enPassantRank = (int) enPassantLoc.charAt(1) - '1';
-                int enPassantFile = (int) enPassantLoc.charAt(0) - 'a';
-                if (newRank == enPassantRank && newFile == enPassantFile) {
-                    pieceTaken = true;
-                    if (moving.isWhite()) {
-                        takePiece(getPieceMatching(newRank-1,newFile));
-                    } else {
-                        takePiece(getPieceMatching(newRank+1,newFile));
-                    }
-                }
-            }
+    /**
+     *  Takes back the ply before plyCount, undoing everything replayPly() did.
+     */
+    private void takeBackPly() {
+        int ply = --plyCount;
+        int move = plyMoves[ply];
+        int from = Move.from(move);
+        int to = Move.to(move);
+        Piece moving = plyMoved[ply];
+        Piece taken = plyTaken[ply];
+
+        repetitions.decrement(position.getKey());
+        position.unmakeMove(move);
+
+        if (Move.promotion(move) != 0) {
+            removeFromSide(plyPromoted[ply]);
+            addToSide(moving);
         }
-        enPassantLoc = currFEN.split(" ")[3];
-
-        String oldLoc = (char)(oldFile+97) + "" + (oldRank+1);
-        String newLoc = (char)(newFile+97) + "" + (newRank+1);
-        boolean kingside = false;
-        boolean queenside = false;
-        if (lastFEN != null && !currFEN.split(" ")[2].equals(lastFEN.split(" ")[2])) {
-            if (oldLoc.equals("e1") || oldLoc.equals("e8")) {
-                if (newLoc.equals("g1") || newLoc.equals("g8")) {
-                    kingside = true;
-                }
-                if (newLoc.equals("c1") || newLoc.equals("c8")) {
-                    queenside = true;
-                }
-            }
+        if (Move.isCastle(move)) {
+            int rookFrom = (to > from) ? to + 1 : to - 2;
+            int rookTo = (to > from) ? to - 1 : to + 1;
+            Piece rook = board[rookTo];
+            setSquare(rookTo, null);
+            setSquare(rookFrom, rook);
+            rook.moveTo(rookFrom / 8, rookFrom % 8);
         }
-        if (kingside) {
-            addToMoveHistory("O-O");
-        } else if (queenside) {
-            addToMoveHistory("O-O-O");
-        } else {
-            if (pieceTaken) {
-                addToMoveHistory(oldLoc + "x" + newLoc);
+        setSquare(to, null);
+        setSquare(from, moving);
+        moving.moveTo(from / 8, from % 8);
+
+        if (taken != null) {
+            setSquare(taken.getRank() * 8 + taken.getFile(), taken);
+            addToSide(taken);
+            // Captures are listed in order, so this one is the last
+            if (taken.isWhite()) {
+                captByBlack = captByBlack.substring(0, captByBlack.lastIndexOf(' '));
+                listener.capturesChanged(this, captByWhite, captByBlack);
             } else {
-                addToMoveHistory(oldLoc+newLoc);
+                captByWhite = captByWhite.substring(0, captByWhite.lastIndexOf(' '));
+                listener.capturesChanged(this, captByWhite, captByBlack);
             }
         }
 
-        setPiecesFromFEN(currFEN);
-
+        currFEN = position.getFEN();
+        pgnTags.put("FEN", currFEN);
+        moveHistory.remove(moveHistory.size() - 1);
+        listener.moveHistoryChanged(this, moveHistory);
         whiteActive = !whiteActive;
     }
 
+    /**
+     *  Writes a move as the move history shows it, e.g. "e2e4", "e4xd5" or "O-O".
+     *
+     *  @param  move     The move, as encoded by Position
+     *  @param  capture  Whether the move captures a piece
+     *  @return the move as text
+     */
+    private String notation(int move, boolean capture) {
+        if (Move.isCastle(move)) {
+            return (Move.to(move) > Move.from(move)) ? "O-O" : "O-O-O";
+        }
+        String uci = Move.toUci(move);
+        String oldLoc = uci.substring(0, 2);
+        String newLoc = uci.substring(2, 4);
+        return capture ? oldLoc + "x" + newLoc : oldLoc + newLoc;
+    }
 
+    private void growPlies() {
+        int size = plyMoves.length * 2;
+        plyMoves = Arrays.copyOf(plyMoves, size);
+        plyMoved = Arrays.copyOf(plyMoved, size);
+        plyTaken = Arrays.copyOf(plyTaken, size);
+        plyPromoted = Arrays.copyOf(plyPromoted, size);
+        plyNotation = Arrays.copyOf(plyNotation, size);
+    }
+
+    /**
+     *  Places a piece on the board array and records the square as changed.
+     *
+     *  @param  square  The square, rank * 8 + file
+     *  @param  piece   The piece to place, or null to empty the square
+     */
+    private void setSquare(int square, Piece piece) {
+        board[square] = piece;
+        changed[changedCount++] = square;
+    }
+
+    /**
+     *  Lists the squares changed by the last move, or every square after
+     *  the board was set from a FEN string. The view redraws just these.
+     *
+     *  @return the changed squares, each rank * 8 + file
+     */
+    public int[] getChangedSquares() {
+        return Arrays.copyOf(changed, changedCount);
+    }
 
     /**
      *  Determines whether or not a move is possible .
@@ -375,12 +708,7 @@ public class Game {
      */
     public boolean tryMove(String newMove){
         if (!Utils.isValidMove(newMove)){ return false; }
-        String oldFEN, newFEN;
-        oldFEN = Chess.engine.getFEN();
-        Chess.engine.move(newMove);
-        newFEN = Chess.engine.getFEN();
-        Chess.engine.setFEN(oldFEN);
-        return (!oldFEN.equals(newFEN));
+        return position.parseMove(newMove) != Move.NONE;
     }
 
     /**
@@ -405,9 +733,8 @@ public class Game {
      * @return  true if possible, false otherwise
      */
     public boolean tryMove(int oldRank, int oldFile, int newRank, int newFile){
-        String oldPos = Utils.translate(oldRank, oldFile);
-        String newPos = Utils.translate(newRank, newFile);
-        return tryMove(oldPos, newPos);
+        if (((oldRank | oldFile | newRank | newFile) & ~7) != 0){ return false; }
+        return position.findMove(Square.of(oldRank, oldFile), Square.of(newRank, newFile), 0) != Move.NONE;
     }
 
     /**
@@ -420,16 +747,31 @@ public class Game {
      * @return  true if possible, false otherwise
      */
     public boolean tryPromotion(int oldRank, int oldFile, int newRank, int newFile, char type) {
-        String oldPos = Utils.translate(oldRank, oldFile);
-        String newPos = Utils.translate(newRank, newFile);
-        if (!Utils.isValidMove(oldPos+newPos))
+        if (((oldRank | oldFile | newRank | newFile) & ~7) != 0)
+            return false;
+        int promotion = " nbrq".indexOf(Character.toLowerCase(type));
+        if (promotion < 0)
             return false;
-        String oldFEN, newFEN;
-        oldFEN = Chess.engine.getFEN();
-        Chess.engine.move(oldPos+newPos+type);
-        newFEN = Chess.engine.getFEN();
-        Chess.engine.setFEN(oldFEN);
-        return (!oldFEN.equals(newFEN));
+        return position.findMove(Square.of(oldRank, oldFile), Square.of(newRank, newFile), promotion) != Move.NONE;
+    }
+
+    /**
+     *  Lists every legal move for the side to move.
+     *
+     *  @return the legal moves in UCI notation, e.g. "e2e4" or "e7e8q"
+     */
+    public ArrayList<String> getLegalMoves() {
+        return position.getLegalMoves();
+    }
+
+    /**
+     *  Lists the squares the piece on a square can legally move to.
+     *
+     *  @param  square  The square, rank * 8 + file
+     *  @return a bitboard with bit rank * 8 + file set for each destination
+     */
+    public long getLegalDestinations(int square) {
+        return position.getLegalDestinations(square);
     }
 
     /**
@@ -439,14 +781,66 @@ public class Game {
      *  @return a Piece if it exists at the given position, null if not
      */
     public Piece getPieceMatching(int rank, int file) {
-        for (Piece p : pieces) {
-            if (p != null && p.getRank() == rank) {
-                if (p.getFile() == file) {
-                    return p;
+        if (rank < 0 || rank > 7 || file < 0 || file > 7) return null;
+        return board[rank * 8 + file];
+    }
+
+    /**
+     *  Gets how many pieces one side has on the board.
+     *  @param  white   true for white's pieces, false for black's
+     *  @return the number of pieces
+     */
+    public int getPieceCount(boolean white) {
+        return sideCount[white ? 0 : 1];
+    }
+
+    /**
+     *  Gets one of a side's pieces, for iterating without allocating.
+     *  The order changes as pieces are captured.
+     *  @param  white   true for white's pieces, false for black's
+     *  @param  index   0 up to getPieceCount(white)
+     *  @return the piece
+     */
+    public Piece getPiece(boolean white, int index) {
+        return sidePieces[white ? 0 : 1][index];
+    }
+
+    /**
+     *  Gets every piece on the board. The list is only rebuilt after the
+     *  pieces change, and must not be modified.
+     *  @return the pieces on the board, white's first
+     */
+    public List<Piece> getPieces() {
+        if (piecesView == null) {
+            ArrayList<Piece> result = new ArrayList<Piece>(sideCount[0] + sideCount[1]);
+            for (int side = 0; side < 2; side++) {
+                for (int i = 0; i < sideCount[side]; i++) {
+                    result.add(sidePieces[side][i]);
                 }
             }
+            piecesView = Collections.unmodifiableList(result);
         }
-        return null;
+        return piecesView;
+    }
+
+    private void addToSide(Piece piece) {
+        int side = piece.isWhite() ? 0 : 1;
+        piece.slot = sideCount[side];
+        sidePieces[side][sideCount[side]++] = piece;
+        piecesView = null;
+    }
+
+    private void removeFromSide(Piece piece) {
+        int side = piece.isWhite() ? 0 : 1;
+        int slot = piece.slot;
+        if (slot < 0 || slot >= sideCount[side] || sidePieces[side][slot] != piece) return;
+        // Move the last piece into the gap
+        Piece last = sidePieces[side][--sideCount[side]];
+        sidePieces[side][slot] = last;
+        last.slot = slot;
+        sidePieces[side][sideCount[side]] = null;
+        piece.slot = -1;
+        piecesView = null;
     }
 
     /**
@@ -462,41 +856,27 @@ public class Game {
      * @param fen  The FEN string that determines piece placement
      */
     public void setPiecesFromFEN(String fen) {
-
-        // new array for pieces
-        ArrayList<Piece> pieces = new ArrayList<Piece>();
-        // Get board as String[8] where [0] is row 8 and [7] is row 1.
-        String[] board = fen.split(" ", 2)[0].split("/");
-        // The current line examined in the for loop, and its length
-        String currentLine;
-        // The current character in the currentLine String AND its num val.
-        char currentChar;
-        int charVal;
-        // The progress through the current board row
-        int rowCursor;
-        // Overall progress through pieces
-        int pieceInd = 0;
-        for (int i = 0; i < 8; i++) {
-            currentLine = board[i];
-            rowCursor = 0;
-            for (int j = 0; j < currentLine.length(); j++) {
-                currentChar = currentLine.charAt(j);
-                charVal = (int) currentChar - '0';
-                if (charVal > 9) { // piece character
-                    if (rowCursor == 0) {
-                        pieces.add(new Piece(Utils.typeToUnicode(currentChar),
-                                            Utils.typeToSide(currentChar),7-i,j));
-                    } else {
-                        pieces.add(new Piece(Utils.typeToUnicode(currentChar),
-                                            Utils.typeToSide(currentChar),7-i,rowCursor));
-                    }
-                    rowCursor++;
-                } else { // number of empty squares
-                    rowCursor += charVal;
-                }
+        Arrays.fill(board, null);
+        for (int side = 0; side < 2; side++) {
+            Arrays.fill(sidePieces[side], null);
+            sideCount[side] = 0;
+        }
+        piecesView = null;
+
+        // An invalid FEN leaves the board empty
+        if (FenCodec.parse(fen, fenBoard, fenState)) {
+            for (int sq = 0; sq < 64; sq++) {
+                if (fenBoard[sq] == Position.EMPTY) continue;
+                Piece piece = Piece.fromCode(fenBoard[sq], sq / 8, sq % 8);
+                board[sq] = piece;
+                addToSide(piece);
             }
         }
-        this.pieces = pieces;
+
+        for (int sq = 0; sq < 64; sq++) {
+            changed[sq] = sq;
+        }
+        changedCount = 64;
     }
 
     /**
@@ -507,64 +887,49 @@ public class Game {
      */
     public void loadFEN(String fen) {
         setPiecesFromFEN(fen);
-        ViewUtils.refreshBoard();
-        enPassantLoc = fen.split(" ")[3];
-        Chess.engine.setFEN(fen);
+        listener.boardChanged(this);
+        engine.setFEN(fen);
+        position.setFEN(fen);
+        repetitions.clear();
+        repetitions.increment(position.getKey());
+        plyCount = plyTop = 0;
         currFEN = fen;
         pgnTags.put("FEN", fen);
-        // Parse taken from fen
-        ArrayList<Character> possTaken = new ArrayList<Character>();
-        possTaken.add(Character.valueOf('K'));
-        possTaken.add(Character.valueOf('k'));
-        possTaken.add(Character.valueOf('Q'));
-        possTaken.add(Character.valueOf('q'));
-        possTaken.add(Character.valueOf('R'));
-        possTaken.add(Character.valueOf('R'));
-        possTaken.add(Character.valueOf('r'));
-        possTaken.add(Character.valueOf('r'));
-        possTaken.add(Character.valueOf('B'));
-        possTaken.add(Character.valueOf('B'));
-        possTaken.add(Character.valueOf('b'));
-        possTaken.add(Character.valueOf('b'));
-        possTaken.add(Character.valueOf('N'));
-        possTaken.add(Character.valueOf('N'));
-        possTaken.add(Character.valueOf('n'));
-        possTaken.add(Character.valueOf('n'));
-        for (int i = 0; i < 8; i++) {
-            // Add repetitions of pawn pieces
-            possTaken.add(Character.valueOf('p'));
-            possTaken.add(Character.valueOf('P'));
+        // Whatever a full set has that the board doesn't was taken
+        int[] missing = new int[12];
+        for (int code = 0; code < 12; code++) {
+            missing[code] = FULL_SET[code % 6];
         }
-        char[] fenArray = fen.split(" ")[0].toCharArray();
-        for (int i = 0; i < fenArray.length; i++) {
-            if (fenArray[i] > '9') {
-                possTaken.remove(Character.valueOf(fenArray[i]));
+        for (int sq = 0; sq < 64; sq++) {
+            if (board[sq] != null && missing[board[sq].getCode()] > 0) {
+                missing[board[sq].getCode()]--;
             }
         }
-        for (Character c : possTaken) {
-            Piece p = new Piece(Utils.typeToUnicode(c), Utils.typeToSide(c),-1,-1);
-            takePiece(p);
+        for (int type = Piece.KING; type >= Piece.PAWN; type--) {
+            for (int side = 0; side < 2; side++) {
+                int code = side * 6 + type;
+                for (int i = 0; i < missing[code]; i++) {
+                    takePiece(Piece.fromCode(code, -1, -1));
+                }
+            }
         }
     }
 
     /**
-     *  Checks to see if Jockfish thinks we have a next best move.
-     * Stockfish returns ""(none)" if there are no best moves, which indicates
-     * obliquely that it is checkmate, stalemate, or a draw
-     * @return boolean value of whether there are best moves remaining
+     * Checks to see if the side to move has any legal move left.
+     * No legal moves indicates that it is checkmate or stalemate.
+     * @return boolean value of whether there are legal moves remaining
      */
     public boolean hasBestMove(){
-        String nextMove = Chess.engine.getBestMove(1);
-        return !nextMove.contains("none");
+        return position.hasLegalMoves();
     }
 
     /**
-     * Checks to see if the list of checkers from stockfish's debug mode is empty
+     * Checks to see if any pieces are giving check to the side to move
      * @return boolean value of whether there are pieces checking the king
      */
     public boolean hasCheckers(){
-        String checkersList = Chess.engine.getCheckers();
-        return !checkersList.equals("Checkers:");
+        return position.inCheck();
     }
 
     /**
@@ -600,13 +965,15 @@ public class Game {
      * @return boolean value of whether the game is a fifty move draw
      */
     public boolean isFiftyMove(){
-        boolean toReturn = false;
-        String fen = Chess.engine.getFEN();
-        int halfmoves = Integer.parseInt(fen.split(" ")[4]);
-        if(halfmoves > 99){
-            toReturn = true;
-        }
-        return toReturn;
+        return position.getHalfmoveClock() > 99;
+    }
+
+    /**
+     * Evaluates every game-ending rule against the current position at once.
+     * @return the position's check, mate, stalemate and draw status
+     */
+    public GameStatus getStatus(){
+        return GameStatus.evaluate(position, repetitions);
     }
 
     /**
@@ -615,96 +982,73 @@ public class Game {
      * 3 means stalemate, four means draw
      */
     public int getGameEndStatus(){
-        if(isCheckmate() && !whiteActive){
-            gameResult = 1;
-        }
-        else if(isCheckmate() && whiteActive){
-            gameResult = 2;
-        }
-        else if(isStalemate()){
-            gameResult = 3;
-        }
-        else if(threeMoveDraw){
-            gameResult = 4;
-        }
-        else if(isFiftyMove()){
-            gameResult = 4;
+        int result = getStatus().getResult();
+        if(result != GameStatus.ONGOING){
+            gameResult = result;
         }
         return gameResult;
     }
 
     /**
-     * Given a move string, updates the arrays and bools that check for a
-     * three move draw/
-     *
-     * @param fen  the new position
+     * Undoes up to the last player move.
+     * If computer moved since last player move, that is undone as well.
      */
-    public void updateThreeMoveDraw(String fen){
-        String[] splitFen = fen.split(" ");
-        fen = splitFen[0] +  splitFen[2];
-        if(fenHistory.contains(fen)){
-            if(dupHistory.contains(fen)){
-                threeMoveDraw = true;
-            }
-            else{
-                dupHistory.add(fen);
-            }
+    public void undoMove() {
+        if (!gameStarted) return;
+        if (cpuThinking) {
+            listener.statusChanged(this, "Unable to undo while the CPU is thinking");
+            return;
         }
-        else{
-            fenHistory.add(fen);
+        // On the user's turn the CPU has replied, so take back both moves
+        boolean userToMove = (position.getSideToMove() == Position.WHITE) == userWhite;
+        int plies = userToMove ? 2 : 1;
+        if (plyCount < plies) {
+            listener.statusChanged(this, "Unable to undo move");
+            return;
+        }
+        changedCount = 0;
+        boolean engineInStep = true;
+        for (int i = 0; i < plies; i++) {
+            takeBackPly();
+            engineInStep &= engine.takeBack();
         }
+        if (!engineInStep) engine.setFEN(currFEN);
+        // Time spent stays spent; the clock just follows the side to move
+        if (clock != null && clock.isRunning()) clock.start(whiteActive);
+        listener.squaresChanged(this);
     }
 
     /**
-     * Undoes up to the last player move.
-     * If computer moved since last player move, that is undone as well.
+     * Redoes the moves taken back by the last undo, up to the user's turn.
+     * Any new move discards the moves that could be redone.
+     * @return true if any move was redone
      */
-    public void undoMove() {
-        if (!Chess.game.gameStarted) return;
-        if (lastFEN == null || prevFEN == null) {
-            Core.statusPanel.setText("Unable to undo move");
-            return;
+    public boolean redoMove() {
+        if (!gameStarted) return false;
+        if (cpuThinking) {
+            listener.statusChanged(this, "Unable to redo while the CPU is thinking");
+            return false;
         }
-        if (!userWhite) {
-            // player black - undo just their move
-            String move = moveHistory.remove(moveHistory.size()-1);
-            if (move.contains("x")) {
-                captByBlack = captByBlack.substring(0,captByBlack.lastIndexOf(' '));
-                Core.takenPanel.setCaptByBlack(captByBlack);
-            }
-            rollbackFEN();
-        } else {
-            // player white - undo both their move and responding CPU move
-            String move = moveHistory.remove(moveHistory.size()-1);
-            if (move.contains("x")) {
-                captByBlack = captByBlack.substring(0,captByBlack.lastIndexOf(' '));
-                Core.takenPanel.setCaptByBlack(captByBlack);
-            }
-            rollbackFEN();
-            move = moveHistory.remove(moveHistory.size()-1);
-            if (move.contains("x")) {
-                captByWhite = captByWhite.substring(0,captByWhite.lastIndexOf(' '));
-                Core.takenPanel.setCaptByWhite(captByWhite);
-            }
-            rollbackFEN();
+        if (plyCount == plyTop) {
+            listener.statusChanged(this, "Unable to redo move");
+            return false;
         }
-        Core.historyPanel.updateMoveHistory(moveHistory);
+        changedCount = 0;
+        do {
+            engine.move(Move.toUci(plyMoves[plyCount]));
+            replayPly();
+        } while (plyCount < plyTop
+                 && (position.getSideToMove() == Position.WHITE) != userWhite);
+        if (clock != null && clock.isRunning()) clock.start(whiteActive);
+        listener.squaresChanged(this);
+        return true;
     }
 
     /**
-     * Rolls back the stored FEN strings by one, sets the pieces array accordingly,
-     * and refreshes the board to visualize the change.
+     * Whether any undone moves can be redone.
+     * @return true if redoMove() would replay a move
      */
-    private void rollbackFEN() {
-        String[] splitFen = currFEN.split(" ");
-        String fen = splitFen[0] +  splitFen[2];
-        fenHistory.remove(fen);
-        dupHistory.remove(fen);
-        currFEN = lastFEN;
-        lastFEN = prevFEN;
-        prevFEN = null;
-        Chess.engine.setFEN(currFEN);
-        setPiecesFromFEN(currFEN);
-        ViewUtils.refreshBoard();
+    public boolean canRedo() {
+        return plyCount < plyTop;
     }
 }
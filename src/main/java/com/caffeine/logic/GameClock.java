@@ -0,0 +1,163 @@
+package com.caffeine.logic;
+
+import java.util.function.LongSupplier;
+
+/**
+ *  A chess clock for both sides. Only the side to move has its time
+ *  running; pressing the clock at the end of a move adds that side's
+ *  increment and starts the other side. With a number of moves per period,
+ *  every side gets its initial time again after that many of its moves,
+ *  as in "40 moves in 90 minutes".
+ */
+public class GameClock {
+
+    private final long initialMillis;
+    private final long incrementMillis;
+    private final int movesPerPeriod;   // 0 for the whole game in one period
+    private final LongSupplier nanoTime;
+
+    private final long[] remaining = new long[2]; // ms, by side: 0 = white
+    private final int[] movesMade = new int[2];
+    private int running = -1;                     // side whose time runs, or -1
+    private boolean paused = false;
+    private long since;                           // nanoTime the running side was last charged
+
+    /**
+     *  @param initialMillis   Each side's time at the start, in ms
+     *  @param incrementMillis Time added after each move, in ms
+     *  @param movesPerPeriod  Moves before the initial time is added again,
+     *                         or 0 for none
+     */
+    public GameClock(long initialMillis, long incrementMillis, int movesPerPeriod) {
+        this(initialMillis, incrementMillis, movesPerPeriod, System::nanoTime);
+    }
+
+    /**
+     *  @param initialMillis   Each side's time at the start, in ms
+     *  @param incrementMillis Time added after each move, in ms
+     *  @param movesPerPeriod  Moves before the initial time is added again,
+     *                         or 0 for none
+     *  @param nanoTime        Where the time comes from, e.g. System::nanoTime
+     */
+    public GameClock(long initialMillis, long incrementMillis, int movesPerPeriod, LongSupplier nanoTime) {
+        this.initialMillis = initialMillis;
+        this.incrementMillis = incrementMillis;
+        this.movesPerPeriod = movesPerPeriod;
+        this.nanoTime = nanoTime;
+        remaining[0] = remaining[1] = initialMillis;
+    }
+
+    private static int side(boolean white) {
+        return white ? 0 : 1;
+    }
+
+    /**
+     *  Takes the time used since it was last taken off the running side.
+     */
+    private void charge() {
+        long now = nanoTime.getAsLong();
+        if (running >= 0 && !paused) {
+            remaining[running] -= (now - since) / 1000000;
+            // Keep the part of a millisecond not yet charged
+            now -= (now - since) % 1000000;
+        }
+        since = now;
+    }
+
+    /**
+     *  Starts the time of the side to move.
+     *
+     *  @param whiteToMove true if white is to move
+     */
+    public synchronized void start(boolean whiteToMove) {
+        charge();
+        running = side(whiteToMove);
+    }
+
+    /**
+     *  Ends the running side's move: adds its increment, starts a new
+     *  period if one is due, and starts the other side's time.
+     */
+    public synchronized void press() {
+        if (running < 0) return;
+        charge();
+        remaining[running] += incrementMillis;
+        movesMade[running]++;
+        if (movesPerPeriod > 0 && movesMade[running] % movesPerPeriod == 0) {
+            remaining[running] += initialMillis;
+        }
+        running = 1 - running;
+    }
+
+    /**
+     *  Stops both sides' time for good, e.g. at the end of the game.
+     */
+    public synchronized void stop() {
+        charge();
+        running = -1;
+    }
+
+    public synchronized void pause() {
+        charge();
+        paused = true;
+    }
+
+    public synchronized void resume() {
+        charge();
+        paused = false;
+    }
+
+    /**
+     *  @return true if one side's time is running
+     */
+    public synchronized boolean isRunning() {
+        return running >= 0;
+    }
+
+    /**
+     *  @return true if white's time is running
+     */
+    public synchronized boolean isWhiteRunning() {
+        return running == 0;
+    }
+
+    /**
+     *  @param  white true for white's clock, false for black's
+     *  @return the time left in ms, negative once it has run out
+     */
+    public synchronized long getRemaining(boolean white) {
+        charge();
+        return remaining[side(white)];
+    }
+
+    /**
+     *  @param white  true for white's clock, false for black's
+     *  @param millis The time left in ms
+     */
+    public synchronized void setRemaining(boolean white, long millis) {
+        charge();
+        remaining[side(white)] = millis;
+    }
+
+    public long getIncrement() {
+        return incrementMillis;
+    }
+
+    /**
+     *  @param  white true for white's clock, false for black's
+     *  @return moves left until the side's next period, or 0 if the rest of
+     *          the game must be played in the time left
+     */
+    public synchronized int getMovesToGo(boolean white) {
+        if (movesPerPeriod == 0) return 0;
+        return movesPerPeriod - movesMade[side(white)] % movesPerPeriod;
+    }
+
+    /**
+     *  @param  white true for white's clock, false for black's
+     *  @return true if the side has run out of time
+     */
+    public synchronized boolean isFlagged(boolean white) {
+        return getRemaining(white) <= 0;
+    }
+}
@@ -0,0 +1,62 @@
+package com.caffeine.logic;
+
+import java.util.List;
+
+/**
+ *  Receives what a Game reports as it is played, so that a game can drive
+ *  a window, a server connection or nothing at all. Each method does
+ *  nothing unless overridden, and one listener may serve many games.
+ *  Events arrive on whichever thread changed the game.
+ */
+public interface GameListener {
+
+    /** A listener that ignores every event, for headless games. */
+    GameListener NONE = new GameListener() {};
+
+    /**
+     *  Every square may have changed, e.g. when a game starts or is loaded.
+     *
+     *  @param game The game that changed
+     */
+    default void boardChanged(Game game) {}
+
+    /**
+     *  Only the squares in game.getChangedSquares() changed.
+     *
+     *  @param game The game that changed
+     */
+    default void squaresChanged(Game game) {}
+
+    /**
+     *  The lists of captured pieces changed.
+     *
+     *  @param game            The game that changed
+     *  @param capturedByWhite Black pieces taken, as glyphs separated by spaces
+     *  @param capturedByBlack White pieces taken, as glyphs separated by spaces
+     */
+    default void capturesChanged(Game game, String capturedByWhite, String capturedByBlack) {}
+
+    /**
+     *  A move was added to or taken from the move history.
+     *
+     *  @param game    The game that changed
+     *  @param history The moves so far, oldest first
+     */
+    default void moveHistoryChanged(Game game, List<String> history) {}
+
+    /**
+     *  Something should be shown to the player, e.g. why a request failed.
+     *
+     *  @param game    The game reporting, or null if no game was created
+     *  @param message The text to show
+     */
+    default void statusChanged(Game game, String message) {}
+
+    /**
+     *  The game is over.
+     *
+     *  @param game   The game that ended
+     *  @param result The result, one of the GameStatus results
+     */
+    default void gameEnded(Game game, int result) {}
+}
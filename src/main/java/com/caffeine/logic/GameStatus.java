@@ -0,0 +1,132 @@
+package com.caffeine.logic;
+
+import static com.caffeine.logic.Position.*;
+
+/**
+ *  Everything needed to decide whether a game is over, gathered in one pass
+ *  over one position: check, the number of legal moves, the fifty-move
+ *  counter, repetitions and insufficient material.
+ */
+public class GameStatus {
+
+    // Results, numbered as in Game.gameResult
+    public static final int ONGOING = 0;
+    public static final int WHITE_WINS = 1;
+    public static final int BLACK_WINS = 2;
+    public static final int STALEMATE = 3;
+    public static final int DRAW = 4;
+    // Not decided by the position: the user's clock ran out
+    public static final int TIME_OUT = 5;
+
+    private static final long LIGHT_SQUARES = 0x55AA55AA55AA55AAL;
+
+    boolean inCheck;
+    int legalMoves;
+    int halfmoveClock;
+    int repetitions;
+    boolean insufficientMaterial;
+    int sideToMove;
+
+    private GameStatus() {}
+
+    /**
+     *  Evaluates a position.
+     *
+     *  @param  position    The position to evaluate
+     *  @param  repetitions Occurrences of each position this game, or null
+     *                      if repetition should not be considered
+     *  @return the position's status
+     */
+    public static GameStatus evaluate(Position position, RepetitionTable repetitions) {
+        GameStatus status = new GameStatus();
+        status.sideToMove = position.getSideToMove();
+        status.inCheck = position.inCheck();
+        status.legalMoves = position.countLegalMoves();
+        status.halfmoveClock = position.getHalfmoveClock();
+        status.repetitions = (repetitions == null) ? 1 : repetitions.get(position.getKey());
+        status.insufficientMaterial = hasInsufficientMaterial(position);
+        return status;
+    }
+
+    /**
+     *  Neither side can ever mate: only kings remain, plus a single knight
+     *  or bishop, or any number of bishops all on squares of one color.
+     */
+    private static boolean hasInsufficientMaterial(Position position) {
+        long heavy = 0L, knights = 0L, bishops = 0L;
+        for (int color = WHITE; color <= BLACK; color++) {
+            heavy |= position.getPieces(color, PAWN) | position.getPieces(color, ROOK)
+                | position.getPieces(color, QUEEN);
+            knights |= position.getPieces(color, KNIGHT);
+            bishops |= position.getPieces(color, BISHOP);
+        }
+        if (heavy != 0) return false;
+        int minors = Long.bitCount(knights | bishops);
+        if (minors <= 1) return true;
+        return knights == 0
+            && ((bishops & LIGHT_SQUARES) == 0 || (bishops & ~LIGHT_SQUARES) == 0);
+    }
+
+    public boolean isCheck() {
+        return inCheck;
+    }
+
+    public int getLegalMoveCount() {
+        return legalMoves;
+    }
+
+    public boolean isCheckmate() {
+        return inCheck && legalMoves == 0;
+    }
+
+    public boolean isStalemate() {
+        return !inCheck && legalMoves == 0;
+    }
+
+    /**
+     *  @return true after 100 halfmoves without a capture or pawn move
+     */
+    public boolean isFiftyMove() {
+        return halfmoveClock > 99;
+    }
+
+    /**
+     *  @return how many times this position has occurred, counting now
+     */
+    public int getRepetitions() {
+        return repetitions;
+    }
+
+    public boolean isThreefoldRepetition() {
+        return repetitions >= 3;
+    }
+
+    public boolean isInsufficientMaterial() {
+        return insufficientMaterial;
+    }
+
+    /**
+     *  Decides the game. Mate and stalemate take precedence over the draw
+     *  rules, since a move that mates ends the game at once.
+     *
+     *  @return ONGOING, WHITE_WINS, BLACK_WINS, STALEMATE or DRAW
+     */
+    public int getResult() {
+        if (isCheckmate()) return (sideToMove == WHITE) ? BLACK_WINS : WHITE_WINS;
+        if (isStalemate()) return STALEMATE;
+        if (isThreefoldRepetition() || isFiftyMove() || insufficientMaterial) return DRAW;
+        return ONGOING;
+    }
+
+    /**
+     *  @return why the game ended, e.g. "checkmate", or null if it goes on
+     */
+    public String getReason() {
+        if (isCheckmate()) return "checkmate";
+        if (isStalemate()) return "stalemate";
+        if (isThreefoldRepetition()) return "threefold repetition";
+        if (isFiftyMove()) return "fifty-move rule";
+        if (insufficientMaterial) return "insufficient material";
+        return null;
+    }
+}
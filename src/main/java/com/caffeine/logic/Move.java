@@ -0,0 +1,67 @@
+package com.caffeine.logic;
+
+/*  Moves are packed into a single int so move lists can live in plain int
+    arrays. Bits 0-5 hold the origin square, bits 6-11 the destination,
+    bits 12-14 the promotion piece type (0 if none), and the top flags mark
+    castling and en passant. Squares are numbered 0 (a1) to 63 (h8). */
+
+public final class Move {
+
+    public static final int NONE = 0;
+
+    public static final int FLAG_CASTLE = 1 << 15;
+    public static final int FLAG_EN_PASSANT = 1 << 16;
+
+    private Move(){}
+
+    /**
+     *  Packs a move into its int encoding.
+     *
+     *  @param  from      The origin square, 0-63
+     *  @param  to        The destination square, 0-63
+     *  @param  promotion The promotion piece type, or 0 for none
+     *  @param  flags     FLAG_CASTLE, FLAG_EN_PASSANT, or 0
+     *  @return the encoded move
+     */
+    public static int encode(int from, int to, int promotion, int flags){
+        return from | (to << 6) | (promotion << 12) | flags;
+    }
+
+    public static int from(int move){
+        return move & 0x3F;
+    }
+
+    public static int to(int move){
+        return (move >>> 6) & 0x3F;
+    }
+
+    public static int promotion(int move){
+        return (move >>> 12) & 0x7;
+    }
+
+    public static boolean isCastle(int move){
+        return (move & FLAG_CASTLE) != 0;
+    }
+
+    public static boolean isEnPassant(int move){
+        return (move & FLAG_EN_PASSANT) != 0;
+    }
+
+    /**
+     *  Formats a move in UCI long algebraic notation, e.g. "e2e4" or "e7e8q".
+     *
+     *  @param  move The encoded move
+     *  @return the move as a UCI String
+     */
+    public static String toUci(int move){
+        StringBuilder result = new StringBuilder(5);
+        int from = from(move);
+        int to = to(move);
+        result.append((char) ('a' + (from & 7))).append((char) ('1' + (from >>> 3)));
+        result.append((char) ('a' + (to & 7))).append((char) ('1' + (to >>> 3)));
+        if (promotion(move) != 0){
+            result.append(" nbrq".charAt(promotion(move)));
+        }
+        return result.toString();
+    }
+}
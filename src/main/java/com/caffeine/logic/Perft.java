@@ -0,0 +1,208 @@
+package com.caffeine.logic;
+
+// First-Party Imports
+import java.util.*;
+
+// Local Imports
+import com.caffeine.engine.Core;
+
+/**
+ *  Counts the leaf nodes of the legal move tree to a fixed depth ("perft").
+ *  Known counts for reference positions prove the move generator correct,
+ *  and nodes per second tracks its speed. The same count can be taken from
+ *  Stockfish through the engine bridge so both can be compared.
+ *
+ *  Usage: Perft [--suite] [--engine] [--depth N] [FEN]
+ *  With no FEN the reference suite is run.
+ */
+public class Perft {
+
+    /**
+     *  Reference positions with published node counts: FEN, depth, nodes.
+     *  See https://www.chessprogramming.org/Perft_Results
+     */
+    public static final String[][] REFERENCE = {
+        // Start position
+        {"rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1", "5", "4865609"},
+        // "Kiwipete": castling, pins and promotions all at once
+        {"r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1", "4", "4085603"},
+        // Rook endgame full of en passant discovered checks
+        {"8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1", "5", "674624"},
+        // Promotions with and without capture, castling out of check
+        {"r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1", "4", "422333"},
+        {"rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8", "4", "2103487"},
+        {"r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10", "4", "3894594"},
+        // En passant traps: illegal because of a pin or a discovered check
+        {"3k4/3p4/8/K1P4r/8/8/8/8 b - - 0 1", "6", "1134888"},
+        {"8/8/4k3/8/2p5/8/B2P2K1/8 w - - 0 1", "6", "1015133"},
+        {"8/8/1k6/2b5/2pP4/8/5K2/8 b - d3 0 1", "6", "1440467"},
+        // Castling rights and castling through check
+        {"5k2/8/8/8/8/8/8/4K2R w K - 0 1", "6", "661072"},
+        {"3k4/8/8/8/8/8/8/R3K3 w Q - 0 1", "6", "803711"},
+        {"r3k2r/1b4bq/8/8/8/8/7B/R3K2R w KQkq - 0 1", "4", "1274206"},
+        {"r3k2r/8/3Q4/8/8/5q2/8/R3K2R b KQkq - 0 1", "4", "1720476"},
+        // Promotion traps, including under-promotion giving check
+        {"2K2r2/4P3/8/8/8/8/8/3k4 w - - 0 1", "6", "3821001"},
+        {"8/8/1P2K3/8/2n5/1q6/8/5k2 b - - 0 1", "5", "1004658"},
+        {"4k3/1P6/8/8/8/8/K7/8 w - - 0 1", "6", "217342"},
+        {"8/P1k5/K7/8/8/8/8/8 w - - 0 1", "6", "92683"},
+        {"K1k5/8/P7/8/8/8/8/8 w - - 0 1", "6", "2217"},
+        {"8/k1P5/8/1K6/8/8/8/8 w - - 0 1", "7", "567584"},
+        // Stalemate and checkmate at the leaves
+        {"8/8/2k5/5q2/5n2/8/5K2/8 b - - 0 1", "4", "23527"}
+    };
+
+    /**
+     *  Counts leaf nodes to the given depth. One move buffer is used per
+     *  level, so the count itself allocates nothing.
+     *
+     *  @param  position The position to count from; restored on return
+     *  @param  depth    How many plies deep to count
+     *  @return the number of leaf nodes
+     */
+    public static long perft(Position position, int depth){
+        if (depth < 1){ return 1; }
+        return perft(position, depth, new int[depth][Position.MAX_MOVES]);
+    }
+
+    private static long perft(Position position, int depth, int[][] buffers){
+        int[] moves = buffers[depth - 1];
+        int count = position.generateLegalMoves(moves);
+        if (depth == 1){ return count; }
+        long nodes = 0;
+        for (int i = 0; i < count; i++){
+            position.makeMove(moves[i]);
+            nodes += perft(position, depth - 1, buffers);
+            position.unmakeMove(moves[i]);
+        }
+        return nodes;
+    }
+
+    /**
+     *  Counts leaf nodes below each legal move, as Stockfish's "perft"
+     *  command prints them.
+     *
+     *  @param  position The position to count from; restored on return
+     *  @param  depth    How many plies deep to count, at least 1
+     *  @return node counts keyed by UCI move
+     */
+    public static LinkedHashMap<String, Long> divide(Position position, int depth){
+        LinkedHashMap<String, Long> result = new LinkedHashMap<String, Long>();
+        int[] moves = new int[Position.MAX_MOVES];
+        int[][] buffers = new int[Math.max(depth - 1, 1)][Position.MAX_MOVES];
+        int count = position.generateLegalMoves(moves);
+        for (int i = 0; i < count; i++){
+            position.makeMove(moves[i]);
+            long nodes = (depth <= 1) ? 1 : perft(position, depth - 1, buffers);
+            position.unmakeMove(moves[i]);
+            result.put(Move.toUci(moves[i]), nodes);
+        }
+        return result;
+    }
+
+    /**
+     *  Sums a divide into a total node count.
+     *
+     *  @param  divide Node counts keyed by move
+     *  @return the total number of nodes
+     */
+    public static long total(Map<String, Long> divide){
+        long nodes = 0;
+        for (long n : divide.values()){ nodes += n; }
+        return nodes;
+    }
+
+    public static void main(String[] args){
+        boolean suite = false;
+        boolean engine = false;
+        int depth = -1;
+        StringBuilder fen = new StringBuilder();
+
+        for (int i = 0; i < args.length; i++){
+            if (args[i].equals("--suite")){ suite = true; }
+            else if (args[i].equals("--engine")){ engine = true; }
+            else if (args[i].equals("--depth") && i + 1 < args.length){ depth = Integer.parseInt(args[++i]); }
+            else { fen.append(fen.length() > 0 ? " " : "").append(args[i]); }
+        }
+
+        Core bridge = engine ? new Core() : null;
+        boolean allPassed = true;
+
+        if (fen.length() > 0){
+            if (!Utils.isValidFEN(fen.toString())){
+                System.err.println("Invalid FEN: " + fen);
+                System.exit(2);
+            }
+            allPassed = run(fen.toString(), depth > 0 ? depth : 4, -1, bridge, true);
+        }
+        if (suite || fen.length() == 0){
+            for (String[] reference : REFERENCE){
+                int d = (depth > 0) ? depth : Integer.parseInt(reference[1]);
+                long expected = (depth > 0) ? -1 : Long.parseLong(reference[2]);
+                allPassed &= run(reference[0], d, expected, bridge, false);
+            }
+        }
+        if (bridge != null){ bridge.quit(); }
+        System.exit(allPassed ? 0 : 1);
+    }
+
+    /**
+     *  Runs one perft and prints its report.
+     *
+     *  @return false if the count disagrees with the expected or engine count
+     */
+    private static boolean run(String fen, int depth, long expected,
+                               Core bridge, boolean showDivide){
+        Position position = new Position(fen);
+        boolean passed = true;
+
+        long start = System.nanoTime();
+        LinkedHashMap<String, Long> divide = divide(position, depth);
+        long elapsed = System.nanoTime() - start;
+        long nodes = total(divide);
+
+        System.out.println(fen);
+        if (showDivide){
+            for (Map.Entry<String, Long> entry : divide.entrySet()){
+                System.out.println("  " + entry.getKey() + ": " + entry.getValue());
+            }
+        }
+        System.out.println(String.format("  local   depth %d  nodes %,d  %,d nodes/sec",
+            depth, nodes, nodesPerSecond(nodes, elapsed)));
+
+        if (expected >= 0 && nodes != expected){
+            System.out.println(String.format("  MISMATCH expected %,d", expected));
+            passed = false;
+        }
+
+        if (bridge != null){
+            bridge.setFEN(fen);
+            start = System.nanoTime();
+            LinkedHashMap<String, Long> engineDivide = bridge.perft(depth);
+            elapsed = System.nanoTime() - start;
+            long engineNodes = total(engineDivide);
+            System.out.println(String.format("  engine  depth %d  nodes %,d  %,d nodes/sec",
+                depth, engineNodes, nodesPerSecond(engineNodes, elapsed)));
+            if (engineNodes != nodes){
+                passed = false;
+                for (Map.Entry<String, Long> entry : engineDivide.entrySet()){
+                    Long local = divide.get(entry.getKey());
+                    if (!entry.getValue().equals(local)){
+                        System.out.println("  MISMATCH " + entry.getKey() + " engine "
+                            + entry.getValue() + " local " + local);
+                    }
+                }
+                for (String move : divide.keySet()){
+                    if (!engineDivide.containsKey(move)){
+                        System.out.println("  MISMATCH " + move + " not legal for engine");
+                    }
+                }
+            }
+        }
+        return passed;
+    }
+
+    private static long nodesPerSecond(long nodes, long nanos){
+        return (nanos <= 0) ? nodes : nodes * 1000000000L / nanos;
+    }
+}
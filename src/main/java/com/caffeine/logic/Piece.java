@@ -1,37 +1,113 @@
 package com.caffeine.logic;
 
 public class Piece {
-    String type;
+    // Piece kinds, numbered as in Position
+    public static final byte PAWN = 0;
+    public static final byte KNIGHT = 1;
+    public static final byte BISHOP = 2;
+    public static final byte ROOK = 3;
+    public static final byte QUEEN = 4;
+    public static final byte KING = 5;
+    public static final byte UNKNOWN = -1;
+
+    // One shared glyph per kind, looked up only when the piece is drawn
+    private static final String[] GLYPHS = {
+        Game.pawn, Game.knight, Game.bishop, Game.rook, Game.queen, Game.king
+    };
+    private static final String FEN_CHARS = "PNBRQKpnbrqk";
+
+    byte kind;
     boolean isWhite;
+    String label; // only kept for a type no kind matches
     int rank; // 0-7 representing 1-8    -1 = taken
     int file; // 0-7 representing A-H    -1 = taken
+    int slot = -1; // index in Game's list of its side's pieces, -1 = none
 
     /**
      *  Initializes a Piece's type, side, and position as specified in parameters.
      *
-     *  @param type     The type of chess piece
+     *  @param type     The type of chess piece, as its Unicode glyph
      *  @param side     The side the Piece should be on, eg. black or white
      *  @param rank     The X coordinate the Piece should start at
      *  @param file     The Y coordinate the Piece should start at
      */
     public Piece(String type, String side, int rank, int file) {
-        this.type = type;       // eg. king or knight
-        if (side.equals("white")) {
-            isWhite = true;
-        } else {
-            isWhite = false;
-        }
+        this(kindOf(type), side.equals("white"), rank, file);
+        if (kind == UNKNOWN) label = type;
+    }
+
+    /**
+     *  Initializes a Piece from its kind and color.
+     *
+     *  @param kind     PAWN through KING
+     *  @param isWhite  true for a white piece, false for black
+     *  @param rank     The X coordinate the Piece should start at
+     *  @param file     The Y coordinate the Piece should start at
+     */
+    public Piece(byte kind, boolean isWhite, int rank, int file) {
+        this.kind = kind;
+        this.isWhite = isWhite;
         this.rank = rank;
         this.file = file;
     }
 
     /**
-     *  Returns the type of the piece as a String.
+     *  Creates a Piece from a board code as used by Position (color * 6 + kind).
+     *
+     *  @param code     The board code, 0-11
+     *  @param rank     The X coordinate the Piece should start at
+     *  @param file     The Y coordinate the Piece should start at
+     *  @return the new Piece
+     */
+    public static Piece fromCode(int code, int rank, int file) {
+        return new Piece((byte) (code % 6), code < 6, rank, file);
+    }
+
+    /**
+     *  Creates a Piece from its FEN letter, e.g. 'N' or 'p'.
+     *
+     *  @param c        The FEN letter; upper case is white
+     *  @param rank     The X coordinate the Piece should start at
+     *  @param file     The Y coordinate the Piece should start at
+     *  @return the new Piece, or null if c names no piece
+     */
+    public static Piece fromFEN(char c, int rank, int file) {
+        int code = FEN_CHARS.indexOf(c);
+        return (code < 0) ? null : fromCode(code, rank, file);
+    }
+
+    private static byte kindOf(String glyph) {
+        for (byte kind = PAWN; kind <= KING; kind++) {
+            if (GLYPHS[kind].equals(glyph)) return kind;
+        }
+        return UNKNOWN;
+    }
+
+    /**
+     *  Returns the kind of the piece.
+     *
+     *  @return PAWN through KING, or UNKNOWN
+     */
+    public byte getKind() {
+        return kind;
+    }
+
+    /**
+     *  Returns the board code of the piece as used by Position.
+     *
+     *  @return color * 6 + kind, or -1 for an unknown kind
+     */
+    public int getCode() {
+        return (kind == UNKNOWN) ? -1 : (isWhite ? 0 : 6) + kind;
+    }
+
+    /**
+     *  Returns the type of the piece as its Unicode glyph, for display.
      *
      *  @return  The type, eg. king or knight
      */
     public String getType() {
-        return type;
+        return (kind == UNKNOWN) ? label : GLYPHS[kind];
     }
 
     /**
@@ -0,0 +1,670 @@
+package com.caffeine.logic;
+
+import java.util.ArrayList;
+
+import static com.caffeine.logic.Bitboards.*;
+
+/**
+ *  A chess position held as bitboards, with make/unmake and a strictly
+ *  legal move generator. This lets the logic layer answer legality, check,
+ *  checkmate and stalemate questions without asking the engine.
+ */
+public class Position {
+
+    public static final int WHITE = 0;
+    public static final int BLACK = 1;
+
+    public static final int PAWN = 0;
+    public static final int KNIGHT = 1;
+    public static final int BISHOP = 2;
+    public static final int ROOK = 3;
+    public static final int QUEEN = 4;
+    public static final int KING = 5;
+
+    // Board entries are color * 6 + type, or EMPTY
+    public static final int EMPTY = -1;
+
+    public static final int WHITE_KINGSIDE = 1;
+    public static final int WHITE_QUEENSIDE = 2;
+    public static final int BLACK_KINGSIDE = 4;
+    public static final int BLACK_QUEENSIDE = 8;
+
+    public static final int MAX_MOVES = 256;
+
+    // Castling rights kept when a move touches each square
+    private static final int[] CASTLING_MASK = new int[64];
+    static {
+        for (int sq = 0; sq < 64; sq++){ CASTLING_MASK[sq] = 15; }
+        CASTLING_MASK[0]  &= ~WHITE_QUEENSIDE;
+        CASTLING_MASK[4]  &= ~(WHITE_KINGSIDE | WHITE_QUEENSIDE);
+        CASTLING_MASK[7]  &= ~WHITE_KINGSIDE;
+        CASTLING_MASK[56] &= ~BLACK_QUEENSIDE;
+        CASTLING_MASK[60] &= ~(BLACK_KINGSIDE | BLACK_QUEENSIDE);
+        CASTLING_MASK[63] &= ~BLACK_KINGSIDE;
+    }
+
+    private long[] pieces = new long[12];     // by board entry
+    private long[] colors = new long[2];      // by color
+    private long occupied;
+    private int[] board = new int[64];
+
+    private int sideToMove;
+    private int castling;
+    private int enPassant;                    // square, or -1 for none
+    private int halfmoveClock;
+    private int fullmoveNumber;
+    private long key;                         // Zobrist key, see Zobrist
+
+    // State that makeMove() cannot recompute, one entry per ply made
+    private int[] undoCaptured = new int[64];
+    private int[] undoCastling = new int[64];
+    private int[] undoEnPassant = new int[64];
+    private int[] undoHalfmove = new int[64];
+    private long[] undoKey = new long[64];
+    private int ply = 0;
+
+    // Scratch space for queries that only need to count or search moves
+    private final int[] scratch = new int[MAX_MOVES];
+
+    // Scratch space for setFEN(), so loading a position allocates nothing
+    private final int[] parsedBoard = new int[64];
+    private final int[] parsedState = new int[FenCodec.STATE_SIZE];
+
+    public Position(){
+        clear();
+    }
+
+    /**
+     *  Creates a position from a FEN string.
+     *
+     *  @param fen The position, which should pass Utils.isValidFEN()
+     */
+    public Position(CharSequence fen){
+        setFEN(fen);
+    }
+
+    private void clear(){
+        for (int i = 0; i < 12; i++){ pieces[i] = 0L; }
+        colors[WHITE] = colors[BLACK] = occupied = 0L;
+        for (int sq = 0; sq < 64; sq++){ board[sq] = EMPTY; }
+        sideToMove = WHITE;
+        castling = 0;
+        enPassant = -1;
+        halfmoveClock = 0;
+        fullmoveNumber = 1;
+        key = 0L;
+        ply = 0;
+    }
+
+    /**
+     *  Replaces this position with the one described by a FEN string.
+     *  Castling rights whose king or rook has left its home square are
+     *  dropped, and the en passant square is only kept when a pawn could
+     *  legally capture onto it.
+     *
+     *  @param  fen The position, which should pass Utils.isValidFEN()
+     *  @return true if the position was loaded, false if fen is invalid
+     */
+    public boolean setFEN(CharSequence fen){
+        if (!FenCodec.parse(fen, parsedBoard, parsedState)){ return false; }
+        clear();
+        for (int sq = 0; sq < 64; sq++){
+            if (parsedBoard[sq] != EMPTY){ put(parsedBoard[sq], sq); }
+        }
+        sideToMove = parsedState[FenCodec.SIDE];
+        castling = parsedState[FenCodec.CASTLING];
+        if (board[4] != KING){ castling &= ~(WHITE_KINGSIDE | WHITE_QUEENSIDE); }
+        if (board[7] != ROOK){ castling &= ~WHITE_KINGSIDE; }
+        if (board[0] != ROOK){ castling &= ~WHITE_QUEENSIDE; }
+        if (board[60] != 6 + KING){ castling &= ~(BLACK_KINGSIDE | BLACK_QUEENSIDE); }
+        if (board[63] != 6 + ROOK){ castling &= ~BLACK_KINGSIDE; }
+        if (board[56] != 6 + ROOK){ castling &= ~BLACK_QUEENSIDE; }
+
+        int sq = parsedState[FenCodec.EN_PASSANT];
+        if (sq != -1 && (sq >>> 3) == (sideToMove == WHITE ? 5 : 2) && canTakeEnPassant(sq)){
+            enPassant = sq;
+        }
+
+        halfmoveClock = parsedState[FenCodec.HALFMOVE];
+        fullmoveNumber = Math.max(1, parsedState[FenCodec.FULLMOVE]);
+        key ^= stateKey();
+        return true;
+    }
+
+    /**
+     *  Serializes this position as a FEN string.
+     *
+     *  @return the position in Forsyth-Edwards Notation
+     */
+    public String getFEN(){
+        return appendFEN(new StringBuilder(90)).toString();
+    }
+
+    /**
+     *  Serializes this position as a FEN string into a buffer the caller
+     *  can reuse.
+     *
+     *  @param  out Where to append the FEN
+     *  @return out, for chaining
+     */
+    public StringBuilder appendFEN(StringBuilder out){
+        return FenCodec.write(out, board, sideToMove, castling, enPassant,
+                              halfmoveClock, fullmoveNumber);
+    }
+
+    // ================= Accessors ============================================
+
+    public int getSideToMove(){ return sideToMove; }
+
+    public int getCastlingRights(){ return castling; }
+
+    public int getEnPassantSquare(){ return enPassant; }
+
+    public int getHalfmoveClock(){ return halfmoveClock; }
+
+    public int getFullmoveNumber(){ return fullmoveNumber; }
+
+    /**
+     *  The Zobrist key of this position. Two positions share a key when
+     *  they have the same pieces on the same squares, side to move,
+     *  castling rights and en passant capture, which is when they count as
+     *  a repetition.
+     *
+     *  @return the 64-bit position key
+     */
+    public long getKey(){ return key; }
+
+    /**
+     *  @param  sq A square, 0 (a1) to 63 (h8)
+     *  @return the board entry (color * 6 + type) on the square, or EMPTY
+     */
+    public int pieceAt(int sq){
+        return board[sq];
+    }
+
+    /**
+     *  @param  color WHITE or BLACK
+     *  @param  type  PAWN through KING
+     *  @return a bitboard of that color's pieces of that type
+     */
+    public long getPieces(int color, int type){
+        return pieces[color * 6 + type];
+    }
+
+    public long getOccupied(int color){
+        return colors[color];
+    }
+
+    // ================= Make / Unmake ========================================
+
+    private void put(int piece, int sq){
+        long bit = 1L << sq;
+        pieces[piece] |= bit;
+        colors[piece / 6] |= bit;
+        occupied |= bit;
+        board[sq] = piece;
+        key ^= Zobrist.PIECE_SQUARE[piece][sq];
+    }
+
+    private void remove(int sq){
+        int piece = board[sq];
+        long bit = ~(1L << sq);
+        pieces[piece] &= bit;
+        colors[piece / 6] &= bit;
+        occupied &= bit;
+        board[sq] = EMPTY;
+        key ^= Zobrist.PIECE_SQUARE[piece][sq];
+    }
+
+    /**
+     *  The part of the key not made of pieces: castling rights, en passant
+     *  file and side to move.
+     */
+    private long stateKey(){
+        long result = Zobrist.CASTLING[castling];
+        if (enPassant != -1){ result ^= Zobrist.EN_PASSANT[enPassant & 7]; }
+        if (sideToMove == BLACK){ result ^= Zobrist.BLACK_TO_MOVE; }
+        return result;
+    }
+
+    /**
+     *  Plays a move. The move must come from generateLegalMoves() for this
+     *  position; it is not checked again here.
+     *
+     *  @param move The encoded move
+     */
+    public void makeMove(int move){
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int us = sideToMove;
+        int them = 1 - us;
+        int piece = board[from];
+        int captured = board[to];
+
+        if (ply == undoCaptured.length){ growUndoStack(); }
+        undoCastling[ply] = castling;
+        undoEnPassant[ply] = enPassant;
+        undoHalfmove[ply] = halfmoveClock;
+        undoKey[ply] = key;
+        key ^= stateKey();
+
+        if (Move.isEnPassant(move)){
+            int victim = (us == WHITE) ? to - 8 : to + 8;
+            captured = board[victim];
+            remove(victim);
+        } else if (captured != EMPTY){
+            remove(to);
+        }
+        undoCaptured[ply] = captured;
+        ply++;
+
+        remove(from);
+        put(Move.promotion(move) != 0 ? us * 6 + Move.promotion(move) : piece, to);
+
+        if (Move.isCastle(move)){
+            if (to > from){
+                remove(to + 1);
+                put(us * 6 + ROOK, to - 1);
+            } else {
+                remove(to - 2);
+                put(us * 6 + ROOK, to + 1);
+            }
+        }
+
+        castling &= CASTLING_MASK[from] & CASTLING_MASK[to];
+
+        if (piece == us * 6 + PAWN || captured != EMPTY){
+            halfmoveClock = 0;
+        } else {
+            halfmoveClock++;
+        }
+        if (us == BLACK){ fullmoveNumber++; }
+        sideToMove = them;
+
+        enPassant = -1;
+        if (piece == us * 6 + PAWN && (to - from == 16 || from - to == 16)
+                && canTakeEnPassant((from + to) >>> 1)){
+            enPassant = (from + to) >>> 1;
+        }
+        key ^= stateKey();
+    }
+
+    /**
+     *  Takes back the last move made with makeMove().
+     *
+     *  @param move The same encoded move that was made
+     */
+    public void unmakeMove(int move){
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int them = sideToMove;
+        int us = 1 - them;
+
+        ply--;
+        int captured = undoCaptured[ply];
+
+        if (Move.isCastle(move)){
+            if (to > from){
+                remove(to - 1);
+                put(us * 6 + ROOK, to + 1);
+            } else {
+                remove(to + 1);
+                put(us * 6 + ROOK, to - 2);
+            }
+        }
+
+        int piece = (Move.promotion(move) != 0) ? us * 6 + PAWN : board[to];
+        remove(to);
+        put(piece, from);
+
+        if (captured != EMPTY){
+            if (Move.isEnPassant(move)){
+                put(captured, (us == WHITE) ? to - 8 : to + 8);
+            } else {
+                put(captured, to);
+            }
+        }
+
+        castling = undoCastling[ply];
+        enPassant = undoEnPassant[ply];
+        halfmoveClock = undoHalfmove[ply];
+        if (us == BLACK){ fullmoveNumber--; }
+        sideToMove = us;
+        key = undoKey[ply];
+    }
+
+    private void growUndoStack(){
+        int size = undoCaptured.length * 2;
+        undoCaptured = java.util.Arrays.copyOf(undoCaptured, size);
+        undoCastling = java.util.Arrays.copyOf(undoCastling, size);
+        undoEnPassant = java.util.Arrays.copyOf(undoEnPassant, size);
+        undoHalfmove = java.util.Arrays.copyOf(undoHalfmove, size);
+        undoKey = java.util.Arrays.copyOf(undoKey, size);
+    }
+
+    // ================= Attacks ==============================================
+
+    /**
+     *  Finds every piece of one color attacking a square.
+     *
+     *  @param  sq       The square attacked
+     *  @param  by       The attacking color
+     *  @param  occupied The occupancy sliding pieces are blocked by
+     *  @return a bitboard of the attackers
+     */
+    private long attackersTo(int sq, int by, long occupied){
+        int base = by * 6;
+        return (PAWN_ATTACKS[1 - by][sq] & pieces[base + PAWN])
+            | (KNIGHT_ATTACKS[sq] & pieces[base + KNIGHT])
+            | (KING_ATTACKS[sq] & pieces[base + KING])
+            | (bishopAttacks(sq, occupied) & (pieces[base + BISHOP] | pieces[base + QUEEN]))
+            | (rookAttacks(sq, occupied) & (pieces[base + ROOK] | pieces[base + QUEEN]));
+    }
+
+    /**
+     *  @param  sq A square, 0 (a1) to 63 (h8)
+     *  @param  by The attacking color
+     *  @return true if any piece of that color attacks the square
+     */
+    public boolean isAttacked(int sq, int by){
+        return attackersTo(sq, by, occupied) != 0;
+    }
+
+    /**
+     *  Finds the pieces giving check to the side to move.
+     *
+     *  @return a bitboard of the checking pieces, empty if not in check
+     */
+    public long getCheckers(){
+        long king = pieces[sideToMove * 6 + KING];
+        if (king == 0){ return 0L; }
+        return attackersTo(lsb(king), 1 - sideToMove, occupied);
+    }
+
+    public boolean inCheck(){
+        return getCheckers() != 0;
+    }
+
+    // ================= Move Generation ======================================
+
+    /**
+     *  Generates every legal move for the side to move. Pins are resolved
+     *  up front, and when in check only king moves and moves that capture
+     *  or block a single checker are produced, so no move is made and
+     *  taken back except for the rare en passant discovered check.
+     *
+     *  @param  moves Output array, at least MAX_MOVES long
+     *  @return the number of moves written to the array
+     */
+    public int generateLegalMoves(int[] moves){
+        int count = 0;
+        int us = sideToMove;
+        int them = 1 - us;
+        long own = colors[us];
+        long enemy = colors[them];
+        long kings = pieces[us * 6 + KING];
+
+        long checkers = 0L;
+        long checkMask = ~0L;
+        long pinned = 0L;
+        long[] pinRays = null;
+        int kingSq = -1;
+
+        if (kings != 0){
+            kingSq = lsb(kings);
+            checkers = attackersTo(kingSq, them, occupied);
+
+            // King steps, with the king lifted so sliders see through it
+            long withoutKing = occupied ^ (1L << kingSq);
+            long targets = KING_ATTACKS[kingSq] & ~own;
+            while (targets != 0){
+                int to = lsb(targets);
+                targets &= targets - 1;
+                if (attackersTo(to, them, withoutKing) == 0){
+                    moves[count++] = Move.encode(kingSq, to, 0, 0);
+                }
+            }
+
+            // In double check only the king may move
+            if (Long.bitCount(checkers) > 1){ return count; }
+            if (checkers != 0){
+                int checker = lsb(checkers);
+                checkMask = between(kingSq, checker) | checkers;
+            }
+
+            long snipers = (BISHOP_RAYS[kingSq]
+                    & (pieces[them * 6 + BISHOP] | pieces[them * 6 + QUEEN]))
+                | (ROOK_RAYS[kingSq]
+                    & (pieces[them * 6 + ROOK] | pieces[them * 6 + QUEEN]));
+            while (snipers != 0){
+                int sniper = lsb(snipers);
+                snipers &= snipers - 1;
+                long blockers = between(kingSq, sniper) & occupied;
+                if (blockers != 0 && (blockers & (blockers - 1)) == 0 && (blockers & own) != 0){
+                    if (pinRays == null){ pinRays = new long[64]; }
+                    pinned |= blockers;
+                    pinRays[lsb(blockers)] = between(kingSq, sniper) | (1L << sniper);
+                }
+            }
+        }
+
+        long targetMask = ~own & checkMask;
+        long movers = own & ~kings;
+        while (movers != 0){
+            int from = lsb(movers);
+            movers &= movers - 1;
+            int type = board[from] - us * 6;
+            long allowed = targetMask;
+            if ((pinned & (1L << from)) != 0){ allowed &= pinRays[from]; }
+
+            long targets;
+            switch (type){
+            case PAWN:
+                count = addPawnMoves(moves, count, from, allowed);
+                continue;
+            case KNIGHT:
+                targets = KNIGHT_ATTACKS[from];
+                break;
+            case BISHOP:
+                targets = bishopAttacks(from, occupied);
+                break;
+            case ROOK:
+                targets = rookAttacks(from, occupied);
+                break;
+            case QUEEN:
+                targets = bishopAttacks(from, occupied) | rookAttacks(from, occupied);
+                break;
+            default:
+                // Any extra king in a hand-edited position stays put
+                continue;
+            }
+            targets &= allowed;
+            while (targets != 0){
+                int to = lsb(targets);
+                targets &= targets - 1;
+                moves[count++] = Move.encode(from, to, 0, 0);
+            }
+        }
+
+        if (checkers == 0 && kingSq == (us == WHITE ? 4 : 60)){
+            count = addCastlingMoves(moves, count, kingSq);
+        }
+        return count;
+    }
+
+    private int addPawnMoves(int[] moves, int count, int from, long allowed){
+        int us = sideToMove;
+        int them = 1 - us;
+        int forward = (us == WHITE) ? 8 : -8;
+        int startRank = (us == WHITE) ? 1 : 6;
+        long empty = ~occupied;
+
+        long targets = 0L;
+        int one = from + forward;
+        if ((empty & (1L << one)) != 0){
+            targets |= 1L << one;
+            int two = one + forward;
+            if ((from >>> 3) == startRank && (empty & (1L << two)) != 0){
+                targets |= 1L << two;
+            }
+        }
+        targets |= PAWN_ATTACKS[us][from] & colors[them];
+        targets &= allowed;
+
+        while (targets != 0){
+            int to = lsb(targets);
+            targets &= targets - 1;
+            if ((to >>> 3) == 0 || (to >>> 3) == 7){
+                moves[count++] = Move.encode(from, to, QUEEN, 0);
+                moves[count++] = Move.encode(from, to, ROOK, 0);
+                moves[count++] = Move.encode(from, to, BISHOP, 0);
+                moves[count++] = Move.encode(from, to, KNIGHT, 0);
+            } else {
+                moves[count++] = Move.encode(from, to, 0, 0);
+            }
+        }
+
+        if (enPassant != -1 && (PAWN_ATTACKS[us][from] & (1L << enPassant)) != 0
+                && isLegalEnPassant(from, enPassant)){
+            moves[count++] = Move.encode(from, enPassant, 0, Move.FLAG_EN_PASSANT);
+        }
+        return count;
+    }
+
+    /**
+     *  Whether a pawn of the side to move can take en passant without
+     *  leaving its king attacked. Checks and pins are tested on the board
+     *  as it would be, since the pawn taken leaves it too and may be the
+     *  only other piece on a pinned line.
+     *
+     *  @param  from The capturing pawn's square
+     *  @param  to   The en passant square
+     *  @return true if the capture is legal
+     */
+    private boolean isLegalEnPassant(int from, int to){
+        long king = pieces[sideToMove * 6 + KING];
+        if (king == 0){ return true; }
+        long victim = 1L << (to + (sideToMove == WHITE ? -8 : 8));
+        long after = (occupied ^ (1L << from) ^ victim) | (1L << to);
+        return (attackersTo(lsb(king), 1 - sideToMove, after) & ~victim) == 0;
+    }
+
+    /**
+     *  Whether the side to move has a legal en passant capture. Only then
+     *  does the square count towards the position, as for repetitions.
+     *
+     *  @param  sq The square a pawn just passed over
+     *  @return true if some pawn can legally take on it
+     */
+    private boolean canTakeEnPassant(int sq){
+        long pawns = PAWN_ATTACKS[1 - sideToMove][sq] & pieces[sideToMove * 6 + PAWN];
+        for (; pawns != 0; pawns &= pawns - 1){
+            if (isLegalEnPassant(lsb(pawns), sq)){ return true; }
+        }
+        return false;
+    }
+
+    private int addCastlingMoves(int[] moves, int count, int kingSq){
+        int them = 1 - sideToMove;
+        int kingside = (sideToMove == WHITE) ? WHITE_KINGSIDE : BLACK_KINGSIDE;
+        int queenside = (sideToMove == WHITE) ? WHITE_QUEENSIDE : BLACK_QUEENSIDE;
+
+        if ((castling & kingside) != 0
+                && board[kingSq + 1] == EMPTY && board[kingSq + 2] == EMPTY
+                && !isAttacked(kingSq + 1, them) && !isAttacked(kingSq + 2, them)){
+            moves[count++] = Move.encode(kingSq, kingSq + 2, 0, Move.FLAG_CASTLE);
+        }
+        if ((castling & queenside) != 0
+                && board[kingSq - 1] == EMPTY && board[kingSq - 2] == EMPTY
+                && board[kingSq - 3] == EMPTY
+                && !isAttacked(kingSq - 1, them) && !isAttacked(kingSq - 2, them)){
+            moves[count++] = Move.encode(kingSq, kingSq - 2, 0, Move.FLAG_CASTLE);
+        }
+        return count;
+    }
+
+    // ================= Convenience Queries ==================================
+
+    /**
+     *  @return how many legal moves the side to move has
+     */
+    public int countLegalMoves(){
+        return generateLegalMoves(scratch);
+    }
+
+    /**
+     *  @return true if the side to move has at least one legal move
+     */
+    public boolean hasLegalMoves(){
+        return generateLegalMoves(scratch) > 0;
+    }
+
+    /**
+     *  @return every legal move in UCI notation, e.g. "e2e4" or "e7e8q"
+     */
+    public ArrayList<String> getLegalMoves(){
+        int count = generateLegalMoves(scratch);
+        ArrayList<String> result = new ArrayList<String>(count);
+        for (int i = 0; i < count; i++){
+            result.add(Move.toUci(scratch[i]));
+        }
+        return result;
+    }
+
+    /**
+     *  Matches a UCI move String against the legal moves in this position.
+     *  Like Stockfish, a promotion must name its piece; "e7e8" alone is not
+     *  a legal move when "e7e8q" is.
+     *
+     *  @param  uci The move, e.g. "e2e4" or "E7E8Q" (case insensitive)
+     *  @return the encoded legal move, or Move.NONE if it is not legal
+     */
+    public int parseMove(String uci){
+        if (uci == null){ return Move.NONE; }
+        String move = uci.trim();
+        if (move.length() < 4 || move.length() > 5){ return Move.NONE; }
+
+        int from = Square.parse(move, 0);
+        int to = Square.parse(move, 2);
+        if (from == Square.NONE || to == Square.NONE){ return Move.NONE; }
+        int promotion = (move.length() == 5)
+            ? " nbrq".indexOf(Character.toLowerCase(move.charAt(4))) : 0;
+        if (promotion < 1 && move.length() == 5){ return Move.NONE; }
+        return findMove(from, to, promotion);
+    }
+
+    /**
+     *  Finds the legal move between two squares.
+     *
+     *  @param  from      The origin square, 0-63
+     *  @param  to        The destination square, 0-63
+     *  @param  promotion The promotion piece type, or 0 for none
+     *  @return the encoded legal move, or Move.NONE if it is not legal
+     */
+    public int findMove(int from, int to, int promotion){
+        int count = generateLegalMoves(scratch);
+        for (int i = 0; i < count; i++){
+            int candidate = scratch[i];
+            if (Move.from(candidate) == from && Move.to(candidate) == to
+                    && Move.promotion(candidate) == promotion){
+                return candidate;
+            }
+        }
+        return Move.NONE;
+    }
+
+    /**
+     *  Collects the squares the piece on a square can legally move to.
+     *
+     *  @param  from A square, 0-63
+     *  @return a bitboard of destinations, 0 if there are none
+     */
+    public long getLegalDestinations(int from){
+        long destinations = 0L;
+        int count = generateLegalMoves(scratch);
+        for (int i = 0; i < count; i++){
+            if (Move.from(scratch[i]) == from){ destinations |= 1L << Move.to(scratch[i]); }
+        }
+        return destinations;
+    }
+}
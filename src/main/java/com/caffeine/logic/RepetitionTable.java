@@ -0,0 +1,106 @@
+package com.caffeine.logic;
+
+/**
+ *  Counts how often each position key has occurred, in an open addressing
+ *  table of primitive longs and ints, so no key is ever boxed. Linear
+ *  probing; entries are only removed by clear(), a count simply drops to
+ *  zero, which keeps probe chains intact.
+ */
+public class RepetitionTable {
+
+    private long[] keys;
+    private int[] counts;
+    private boolean[] used;
+    private int size = 0;
+
+    public RepetitionTable(){
+        this(64);
+    }
+
+    /**
+     *  @param expected How many distinct positions to size the table for
+     */
+    public RepetitionTable(int expected){
+        int capacity = 16;
+        while (capacity < expected * 2){ capacity <<= 1; }
+        allocate(capacity);
+    }
+
+    private void allocate(int capacity){
+        keys = new long[capacity];
+        counts = new int[capacity];
+        used = new boolean[capacity];
+        size = 0;
+    }
+
+    /**
+     *  Finds the slot holding a key, or the empty slot where it belongs.
+     */
+    private int slot(long key){
+        int mask = keys.length - 1;
+        // Zobrist keys are already random, so folding is mixing enough
+        int i = (int) (key ^ (key >>> 32)) & mask;
+        while (used[i] && keys[i] != key){ i = (i + 1) & mask; }
+        return i;
+    }
+
+    /**
+     *  @param  key A position key
+     *  @return how many times the position has occurred
+     */
+    public int get(long key){
+        int i = slot(key);
+        return used[i] ? counts[i] : 0;
+    }
+
+    /**
+     *  Records one more occurrence of a position.
+     *
+     *  @param  key A position key
+     *  @return how many times the position has now occurred
+     */
+    public int increment(long key){
+        if ((size + 1) * 2 > keys.length){ grow(); }
+        int i = slot(key);
+        if (!used[i]){
+            used[i] = true;
+            keys[i] = key;
+            size++;
+        }
+        return ++counts[i];
+    }
+
+    /**
+     *  Forgets one occurrence of a position, e.g. when a move is undone.
+     *
+     *  @param  key A position key
+     *  @return how many times the position has now occurred
+     */
+    public int decrement(long key){
+        int i = slot(key);
+        if (!used[i] || counts[i] == 0){ return 0; }
+        return --counts[i];
+    }
+
+    public void clear(){
+        java.util.Arrays.fill(used, false);
+        java.util.Arrays.fill(counts, 0);
+        size = 0;
+    }
+
+    private void grow(){
+        long[] oldKeys = keys;
+        int[] oldCounts = counts;
+        boolean[] oldUsed = used;
+        allocate(keys.length * 2);
+        for (int i = 0; i < oldKeys.length; i++){
+            if (oldUsed[i] && oldCounts[i] > 0){
+                int j = slot(oldKeys[i]);
+                used[j] = true;
+                keys[j] = oldKeys[i];
+                counts[j] = oldCounts[i];
+                size++;
+            }
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.caffeine.logic;
+
+/**
+ *  Squares as plain ints, 0 (a1) to 63 (h8), the numbering Position and
+ *  Move use: rank * 8 + file. Names are looked up in precomputed tables in
+ *  both directions, so converting coordinates neither branches on the
+ *  characters nor allocates.
+ */
+public final class Square {
+
+    public static final int NONE = -1;
+
+    private static final String[] NAMES = new String[64];
+
+    // Rank or file value of each ASCII character, or -64 if it is not one,
+    // so that any invalid character makes the combined square negative
+    private static final int[] FILE_OF = new int[128];
+    private static final int[] RANK_OF = new int[128];
+
+    static {
+        for (int sq = 0; sq < 64; sq++){
+            NAMES[sq] = "" + (char) ('a' + (sq & 7)) + (char) ('1' + (sq >>> 3));
+        }
+        for (int ch = 0; ch < 128; ch++){
+            FILE_OF[ch] = -64;
+            RANK_OF[ch] = -64;
+        }
+        for (int i = 0; i < 8; i++){
+            FILE_OF['a' + i] = i;
+            FILE_OF['A' + i] = i;
+            RANK_OF['1' + i] = i * 8;
+        }
+    }
+
+    private Square(){}
+
+    /**
+     *  @param  rank A rank, 0-7
+     *  @param  file A file, 0-7
+     *  @return the square index
+     */
+    public static int of(int rank, int file){
+        return (rank << 3) | file;
+    }
+
+    public static int rank(int sq){
+        return sq >>> 3;
+    }
+
+    public static int file(int sq){
+        return sq & 7;
+    }
+
+    /**
+     *  @param  sq A square, 0-63
+     *  @return its algebraic name, e.g. "e4"; the same String every time
+     */
+    public static String name(int sq){
+        return NAMES[sq];
+    }
+
+    /**
+     *  Reads an algebraic square name, e.g. "e4" or "E4".
+     *
+     *  @param  name The name to read
+     *  @return the square index, or NONE if name is not a square
+     */
+    public static int parse(CharSequence name){
+        if (name == null || name.length() != 2){ return NONE; }
+        return parse(name, 0);
+    }
+
+    /**
+     *  Reads the two characters of a square name starting at an offset,
+     *  e.g. the destination of a UCI move at offset 2.
+     *
+     *  @param  text   The text holding the name
+     *  @param  offset Where the name starts; two characters must follow
+     *  @return the square index, or NONE if those characters are not a square
+     */
+    public static int parse(CharSequence text, int offset){
+        int file = text.charAt(offset);
+        int rank = text.charAt(offset + 1);
+        if ((file | rank) >= 128){ return NONE; }
+        int sq = FILE_OF[file] + RANK_OF[rank];
+        return (sq < 0) ? NONE : sq;
+    }
+}
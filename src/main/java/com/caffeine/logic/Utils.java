@@ -3,10 +3,6 @@ package com.caffeine.logic;
 //  First-Party Imports
 import com.caffeine.logic.Game;
 
-//  Third-Party Imports
-import org.apache.commons.lang3.CharUtils;
-import org.apache.commons.lang3.StringUtils;
-
 //  Local Imports
 
 /*  A library of public static functions that we find helpful and don't want
@@ -25,129 +21,7 @@ public class Utils {
      *  @return true if valid, or false if invalid
      */
     public static boolean isValidFEN(String fen){
-
-        String validOptions;
-
-        //  FEN String cannot be blank.
-        if (StringUtils.isBlank(fen)){
-            return false;
-        }
-
-        //  FEN String has exactly 6 fields separated by spaces.
-        String[] fenFields = fen.trim().split(" ");
-        if (fenFields.length != 6){
-            return false;
-        }
-
-        /**
-         *  FEN Field 1 is Piece Placement from Rows 8 to 1 delimited by '/'.
-         *
-         *  Player 1 (White)'s Pieces are within "PNBRQK",
-         *  Player 2 (Black)'s Pieces are within "pnbrqk",
-         *  Empty squares grouped as digits within [1,8] (incl.)
-         */
-        validOptions = "pnbrqk12345678";
-        String[] boardState = fenFields[0].split("/");
-        if (boardState.length != 8){
-            return false;
-        }
-        for (String str : boardState){
-            int rowValue = 0; // Digits are their value. Letters are a 1.
-            for (char ch : str.toLowerCase().toCharArray()){
-                if (validOptions.contains(new String(""+ch))){
-                    rowValue += CharUtils.toIntValue(ch, 1);
-                } else {
-                    return false;
-                }
-            }
-            if (rowValue != 8){
-                return false;
-            }
-        }
-
-        //  FEN Field 2: Active Color. Can only be "w" or "b".
-        validOptions = "wb";
-        String activePlayer = fenFields[1];
-        if (activePlayer.length() != 1){
-            return false;
-        }
-        if (!validOptions.contains(activePlayer)){
-            return false;
-        }
-
-        //  FEN Field 3: Castling Availability of Kings and Queens; "KQkq".
-        validOptions = "KQkq";
-        String castlingAbility = fenFields[2];
-
-        // No more than 4 chars, e.g. "KQkq-" is invalid.
-        if (castlingAbility.length() > 4){
-            return false;
-        }
-
-        // If '-', nobody can castle and we can skip all this.
-        if (!castlingAbility.equals("-")){
-            int uniqueCount = 0;
-            String uniqueChars = "";
-            for (char ch : castlingAbility.toCharArray()){
-                // Check all chars are valid.
-                if (!validOptions.contains(new String(""+ch))){
-                    return false;
-                }
-                // Check all chars are unique. "KKkq" is invalid.
-                if (!uniqueChars.contains(new String(""+ch))){ uniqueChars = ch + uniqueChars; }
-            }
-            if (uniqueChars.length() != castlingAbility.length()){
-                return false;
-            }
-        }
-
-        // FEN Field 4: En Passant, can be either '-' or a board location.
-        String enPassantStatus = fenFields[3].toLowerCase();
-
-        // If '-', no en-passant and we can skip all this.
-        boolean passantValidPos = isValidBoardPosition(enPassantStatus);
-        boolean passantNonPos = enPassantStatus.equals("-");
-
-        if ( !passantValidPos && !passantNonPos ){ return false; }
-
-
-        // FEN Field 5:
-        // Halfmove Clock (number of halfmoves since last capture or pawn move).
-        String halfmoveClock = fenFields[4];
-
-        // Must be non-negative integer.
-        try {
-            int halfmoveVal = Integer.parseInt(halfmoveClock);
-            if (halfmoveVal < 0){
-                return false;
-            }
-        } catch (Exception e){
-            return false;
-        } // If string isn't a number
-
-
-        // FEN Field 6: Fullmove Clock (Full turns in the game).
-        String fullmoveClock = fenFields[5];
-
-        // Must be non-negative.
-        try {
-            int fullmoveVal = Integer.parseInt(fullmoveClock);
-            if (fullmoveVal < 0){
-                return false;
-            }
-        } catch (Exception e){
-            return false;
-        } // If string isn't a number
-
-
-        /**
-         *  NOTE: Can't easily validate halfmoveVal and fullmoveVal in
-         *  relation to one another because of the start/endgame
-         *  edge cases.
-         *  If we're still here, we've most likely got a valid FEN String!
-         */
-
-        return true;
+        return FenCodec.isValid(fen);
     }
 
     /**
@@ -158,14 +32,7 @@ public class Utils {
      *  @return true if the given coordinate exists on a board, false otherwise
      */
     public static boolean isValidBoardPosition(String position){
-
-        String sanitizedPosition = position.toLowerCase().trim();
-        String validRanks = "12345678";
-        String validFiles = "abcdefgh";
-        if (sanitizedPosition.length() != 2){ return false; }
-        if (!validRanks.contains(sanitizedPosition.substring(1,2))){ return false; }
-        if (!validFiles.contains(sanitizedPosition.substring(0,1))){ return false; }
-        return true;
+        return Square.parse(position.trim()) != Square.NONE;
     }
 
     /**
@@ -176,12 +43,8 @@ public class Utils {
      *  @return true if the given move starts and ends on valid positions, false otherwise
      */
     public static boolean isValidMove(String move){
-
-        boolean move1, move2;
         if (move.length() != 4){ return false; }
-        move1 = isValidBoardPosition(move.substring(0,2));
-        move2 = isValidBoardPosition(move.substring(2,4));
-        return (move1 && move2);
+        return Square.parse(move, 0) != Square.NONE && Square.parse(move, 2) != Square.NONE;
     }
 
     /**
@@ -192,11 +55,9 @@ public class Utils {
      * @return int array of length 2 marking Rank and File. null if invalid
      */
     public static Integer[] translate(String position){
-        if (!isValidBoardPosition(position)){ return null; }
-        return new Integer[]{
-            Integer.parseInt(position.substring(1,2)) - 1,
-            (int) Character.toLowerCase(position.charAt(0)) - 97
-        };
+        int sq = Square.parse(position);
+        if (sq == Square.NONE){ return null; }
+        return new Integer[]{ Square.rank(sq), Square.file(sq) };
     }
 
     /**
@@ -208,12 +69,7 @@ public class Utils {
      */
     public static String translate(Integer[] index){
         if (index.length != 2){ return null; }
-        if (index[0] < 0 || index[0] > 7){ return null; }
-        if (index[1] < 0 || index[1] > 7){ return null; }
-        return new String(
-            new String(Character.toString((char)(index[1] + 97))) +
-            Integer.toString(index[0] + 1)
-        );
+        return translate(index[0], index[1]);
     }
 
     /**
@@ -226,10 +82,7 @@ public class Utils {
     public static String translate(Integer rank, Integer file){
         if (rank < 0 || rank > 7){ return null; }
         if (file < 0 || file > 7){ return null; }
-        return new String(
-            new String(Character.toString((char)(file + 97))) +
-            Integer.toString(rank + 1)
-        );
+        return Square.name(Square.of(rank, file));
     }
 
     /**
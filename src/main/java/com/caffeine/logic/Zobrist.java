@@ -0,0 +1,46 @@
+package com.caffeine.logic;
+
+/**
+ *  Random keys for Zobrist hashing. A position's key is the XOR of one key
+ *  per piece on its square, one for the castling rights, one for the en
+ *  passant file and one if Black is to move, so a move updates it with a
+ *  few XORs. The keys come from a fixed seed, so a position hashes the same
+ *  in every run and keys can be stored.
+ */
+public final class Zobrist {
+
+    public static final long[][] PIECE_SQUARE = new long[12][64]; // by board entry
+    public static final long[] CASTLING = new long[16];            // by rights
+    public static final long[] EN_PASSANT = new long[8];           // by file
+    public static final long BLACK_TO_MOVE;
+
+    private static long seed = 0x1530CAFFE1E5L;
+
+    static {
+        for (int piece = 0; piece < 12; piece++){
+            for (int sq = 0; sq < 64; sq++){ PIECE_SQUARE[piece][sq] = next(); }
+        }
+        // Rights combine by XOR-ing a key per right, so that losing one
+        // right costs a single XOR like everything else
+        long[] rights = { next(), next(), next(), next() };
+        for (int mask = 0; mask < 16; mask++){
+            for (int bit = 0; bit < 4; bit++){
+                if ((mask & (1 << bit)) != 0){ CASTLING[mask] ^= rights[bit]; }
+            }
+        }
+        for (int file = 0; file < 8; file++){ EN_PASSANT[file] = next(); }
+        BLACK_TO_MOVE = next();
+    }
+
+    private Zobrist(){}
+
+    /**
+     *  SplitMix64, a small generator with well mixed 64-bit output.
+     */
+    private static long next(){
+        long z = (seed += 0x9E3779B97F4A7C15L);
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
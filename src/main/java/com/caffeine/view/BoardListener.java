@@ -2,7 +2,7 @@ package com.caffeine.view;
 
 import com.caffeine.Chess;
 import com.caffeine.logic.Piece;
-import com.caffeine.logic.Utils;
+import com.caffeine.logic.Square;
 
 import java.util.*;
 import java.io.*;
@@ -23,6 +23,10 @@ public class BoardListener implements ActionListener {
     public void actionPerformed(ActionEvent e) {
 
         if (!Chess.game.gameStarted) return;
+        if (Chess.game.isCpuThinking()) {
+            Core.statusPanel.setText("Wait for the CPU to move");
+            return;
+        }
 
         BoardSquare squareButton = (BoardSquare) e.getSource();
 
@@ -38,16 +42,16 @@ public class BoardListener implements ActionListener {
 
                 selected = squareButton;
                 selected.selectSquare();
-                Core.statusPanel.setText("Selected: " + selected.getName().split(":")[1]);
+                int at = selected.getSquare();
+                Core.statusPanel.setText("Selected: " + (char)(Square.file(at)+65) + "," + (Square.rank(at)+1));
 
                 // Get list of positions the Piece on this BoardSquare can
                 // be moved to. Visually indicates with green background.
                 if (Core.showLegalMoves){
-                    Core.possibleMoves = selected.getPossibleMoves();
-                    for (String move : Core.possibleMoves){
-                        Integer[] raf = Utils.translate(move); // Rank And File
-                        BoardSquare square = Core.squares[7-raf[0]][raf[1]];
-                        square.indicateValidDestination();
+                    Core.possibleMoves = selected.getPossibleDestinations();
+                    for (long dest = Core.possibleMoves; dest != 0; dest &= dest - 1){
+                        int sq = Long.numberOfTrailingZeros(dest);
+                        Core.squares[7-Square.rank(sq)][Square.file(sq)].indicateValidDestination();
                     }
                 }
             } else {
@@ -58,39 +62,25 @@ public class BoardListener implements ActionListener {
 
             if (squareButton != selected){
                 // else move the previously selected chess piece to the clicked square
-                int oldRank = Integer.parseInt(selected.getName().split(":")[1].split(",")[1]) - 1;
-                int oldFile = ((int) selected.getName().split(":")[1].split(",")[0].toCharArray()[0]) - 65;
-                int newRank = Integer.parseInt(squareButton.getName().split(":")[1].split(",")[1]) - 1;
-                int newFile = ((int) squareButton.getName().split(":")[1].split(",")[0].toCharArray()[0]) - 65;
+                int oldRank = Square.rank(selected.getSquare());
+                int oldFile = Square.file(selected.getSquare());
+                int newRank = Square.rank(squareButton.getSquare());
+                int newFile = Square.file(squareButton.getSquare());
                 Piece piece = selected.getPiece();
                 if (Chess.game.move(oldRank,oldFile,newRank,newFile)) {
-                    selected.removePiece();
-                    squareButton.setPiece(piece);
                     String oldLoc = (char)(oldFile+65) + "" + (oldRank+1);
                     String newLoc = (char)(newFile+65) + "" + (newRank+1);
                     Core.statusPanel.setText("User Move: " + oldLoc + "," + newLoc);
-                    ViewUtils.refreshBoard();
+                    ViewUtils.refreshChangedSquares();
                     //Check that game has not ended
                     int gameState = Chess.game.getGameEndStatus();
                     if(gameState != 0){
                         Chess.game.endGame(gameState);
                     } else {
                         // Do CPU Move in response
-                        String cpuMove = Chess.game.cpuMove();
-                        String[] moveData = cpuMove.split("");
-                        moveData[0] = moveData[0].toUpperCase();
-                        moveData[2] = moveData[2].toUpperCase();
-                        Core.statusPanel.setText("CPU Move: " + moveData[0] + "" + moveData[1] + "," +
-                                                        moveData[2] + "" + moveData[3]);
-                        ViewUtils.refreshBoard();
-                        //Check that game has not ended
-                        gameState = Chess.game.getGameEndStatus();
-                        if(gameState != 0){
-                            Chess.game.endGame(gameState);
-                        }
+                        ViewUtils.requestCpuMove();
                     }
-                    
-                } else if (piece.getType().equals(Core.pawn)) {
+                } else if (piece.getKind() == Piece.PAWN) {
                     if (Chess.game.userWhite() && newRank == 7 || !Chess.game.userWhite() && newRank == 0) {
                         // Edge-case: Promotion
                         if (Chess.game.tryPromotion(oldRank,oldFile,newRank,newFile,'r')) {
@@ -107,25 +97,14 @@ public class BoardListener implements ActionListener {
                                 else type = 'b';
                                 Core.statusPanel.setText("Promotion to " + choice);
                                 Chess.game.moveP(oldRank,oldFile,newRank,newFile,type);
-                                ViewUtils.refreshBoard();
+                                ViewUtils.refreshChangedSquares();
                                 //Check that game has not ended
                                 int gameState = Chess.game.getGameEndStatus();
                                 if(gameState != 0){
                                     Chess.game.endGame(gameState);
                                 } else {
                                     // Do CPU Move in response
-                                    String cpuMove = Chess.game.cpuMove();
-                                    String[] moveData = cpuMove.split("");
-                                    moveData[0] = moveData[0].toUpperCase();
-                                    moveData[2] = moveData[2].toUpperCase();
-                                    Core.statusPanel.setText("CPU Move: " + moveData[0] + "" +
-                                     moveData[1] + "," + moveData[2] + "" + moveData[3]);
-                                    ViewUtils.refreshBoard();
-                                    //Check that game has not ended
-                                    gameState = Chess.game.getGameEndStatus();
-                                    if(gameState != 0){
-                                        Chess.game.endGame(gameState);
-                                    }
+                                    ViewUtils.requestCpuMove();
                                 }
                             }
                         }
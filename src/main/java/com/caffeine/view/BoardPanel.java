@@ -2,6 +2,7 @@ package com.caffeine.view;
 
 import com.caffeine.Chess;
 import com.caffeine.logic.Piece;
+import com.caffeine.logic.Square;
 
 import java.util.*;
 import java.io.*;
@@ -80,6 +81,7 @@ public class BoardPanel extends JPanel {
                     Core.squares[i][j] = new BoardSquare();
                     Core.squares[i][j].setBackgroundColor(isWhiteSquare);
                     Core.squares[i][j].setName("BoardSquare:" + (char)(j+65) + "," + (8-i));
+                    Core.squares[i][j].setSquare(Square.of(7-i, j));
                     Core.squares[i][j].addActionListener(boardListener);
                     c.gridx = j+1;
                     c.gridy = i;
@@ -117,6 +119,7 @@ public class BoardPanel extends JPanel {
                     Core.squares[i][j] = new BoardSquare();
                     Core.squares[i][j].setBackgroundColor(isWhiteSquare);
                     Core.squares[i][j].setName("BoardSquare:" + (char)(j+65) + "," + (8-i));
+                    Core.squares[i][j].setSquare(Square.of(7-i, j));
                     Core.squares[i][j].addActionListener(boardListener);
                     c.gridx = 8-(j);
                     c.gridy = 8-(i+1);
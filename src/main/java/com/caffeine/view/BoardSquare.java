@@ -5,7 +5,7 @@ import java.util.ArrayList;
 import com.caffeine.Chess;
 import com.caffeine.view.Core;
 import com.caffeine.logic.Piece;
-import com.caffeine.logic.Utils;
+import com.caffeine.logic.Square;
 
 import javax.swing.*;
 import javax.swing.border.*;
@@ -17,6 +17,7 @@ import java.awt.*;
 public class BoardSquare extends JButton {
     Piece piece = null;
     boolean isLightSquare;
+    int square = Square.NONE;   // rank * 8 + file, set by the board panel
 
     // formatting-related objects
     final Border line = new LineBorder(Color.BLACK, 0);
@@ -59,6 +60,24 @@ public class BoardSquare extends JButton {
         }
     }
 
+    /**
+     *  Returns the board square this button shows
+     *
+     *  @return  The square index, rank * 8 + file, or Square.NONE if unplaced
+     */
+    public int getSquare() {
+        return square;
+    }
+
+    /**
+     *  Places this button on the board
+     *
+     *  @param  square  The square index, rank * 8 + file
+     */
+    public void setSquare(int square) {
+        this.square = square;
+    }
+
     /**
      *  Returns whether or not piece is light
      *
@@ -179,121 +198,30 @@ public class BoardSquare extends JButton {
         setForeground(color);
     }
 
+    /**
+     *  Determines (based on the Piece at this square) which other squares on
+     *      the board are eligible destinations.
+     *
+     *  @return bitboard with bit rank * 8 + file set for each square this
+     *      square's Piece can move to. 0 if there are none.
+     */
+    public long getPossibleDestinations(){
+        if (!hasPiece()){ return 0L; }
+        return Chess.game.getLegalDestinations(Square.of(piece.getRank(), piece.getFile()));
+    }
+
     /**
      *  Determines (based on the Piece at this square) which other squares on
      *      the board are eligible destinations.
      *
      *  @return ArrayList of Strings denoting positions this square's Piece
-     *      can move to. List will be empty if
+     *      can move to. List will be empty if there are none.
      */
     public ArrayList<String> getPossibleMoves(){
-        ArrayList<String> result, tmpDest;
-        String castling, src;
-        int rank, file;
-        Piece piece;
-
-        result = new ArrayList<String>();
-
-        if (!hasPiece()){ return result; }
-
-        piece = getPiece();
-        rank = piece.getRank();
-        file = piece.getFile();
-
-        tmpDest = new ArrayList<String>();
-        castling = Chess.engine.getFEN().split(" ")[3];
-        switch (piece.getType()){
-        case Core.king:
-            // King can move 1 space in any direction.
-            tmpDest.add(Utils.translate(rank-1, file-1));
-            tmpDest.add(Utils.translate(rank-1, file+1));
-            tmpDest.add(Utils.translate(rank-1, file));
-            tmpDest.add(Utils.translate(rank, file-1));
-            tmpDest.add(Utils.translate(rank, file+1));
-            tmpDest.add(Utils.translate(rank+1, file-1));
-            tmpDest.add(Utils.translate(rank+1, file+1));
-            tmpDest.add(Utils.translate(rank+1, file));
-            // Special Case: Castling
-            if (castling.equals("-")){ break; }
-            else if (piece.isWhite()){
-                if (castling.contains("K")){ tmpDest.add(Utils.translate(rank, file+2)); }
-                if (castling.contains("Q")){ tmpDest.add(Utils.translate(rank, file-2)); }
-            }
-            else if (!piece.isWhite()){
-                if (castling.contains("k")){ tmpDest.add(Utils.translate(rank, file+2)); }
-                if (castling.contains("q")){ tmpDest.add(Utils.translate(rank, file-2)); }
-            }
-            break;
-        case Core.queen:
-            // Queen can move N spaces in any one direction.
-            for (int i = 1; i <= 7; i++){
-                tmpDest.add(Utils.translate(rank-i, file)); // N
-                tmpDest.add(Utils.translate(rank, file+i)); // E
-                tmpDest.add(Utils.translate(rank, file-i)); // W
-                tmpDest.add(Utils.translate(rank+i, file)); // S
-                tmpDest.add(Utils.translate(rank-i, file-i)); // NW
-                tmpDest.add(Utils.translate(rank-i, file+i)); // NE
-                tmpDest.add(Utils.translate(rank+i, file-i)); // SW
-                tmpDest.add(Utils.translate(rank+i, file+i)); // SE
-            }
-            break;
-        case Core.rook:
-            // Rook can move N spaces horizontally or vertically.
-            for (int i = 1; i <= 7; i++){
-                tmpDest.add(Utils.translate(rank-i, file)); // N
-                tmpDest.add(Utils.translate(rank, file+i)); // E
-                tmpDest.add(Utils.translate(rank, file-i)); // W
-                tmpDest.add(Utils.translate(rank+i, file)); // S
-            }
-            break;
-        case Core.bishop:
-            // Bishop can move N spaces diagonally.
-            for (int i = 1; i <= 7; i++){
-                tmpDest.add(Utils.translate(rank-i, file-i)); // NW
-                tmpDest.add(Utils.translate(rank-i, file+i)); // NE
-                tmpDest.add(Utils.translate(rank+i, file-i)); // SW
-                tmpDest.add(Utils.translate(rank+i, file+i)); // SE
-            }
-            break;
-        case Core.knight:
-            // Knight can move:
-            //     2 Horizontally and 1 Vertically, or
-            //     2 Vertically and 1 Horizontally.
-            tmpDest.add(Utils.translate(rank+2, file+1));
-            tmpDest.add(Utils.translate(rank+2, file-1));
-            tmpDest.add(Utils.translate(rank+1, file+2));
-            tmpDest.add(Utils.translate(rank+1, file-2));
-            tmpDest.add(Utils.translate(rank-2, file+1));
-            tmpDest.add(Utils.translate(rank-2, file-1));
-            tmpDest.add(Utils.translate(rank-1, file+2));
-            tmpDest.add(Utils.translate(rank-1, file-2));
-            break;
-        case Core.pawn:
-            // Pawn can move 1 space "forward" or take diagonal pieces.
-            // Note: Accidentally handles EnPassant, so good.
-            if (piece.isWhite()){
-                tmpDest.add(Utils.translate(rank+1, file));
-                tmpDest.add(Utils.translate(rank+1, file-1));
-                tmpDest.add(Utils.translate(rank+1, file+1));
-                // Special Case: In default spot.
-                if (rank == 1){ tmpDest.add(Utils.translate(rank+2, file)); }
-            } else {
-                tmpDest.add(Utils.translate(rank-1, file));
-                tmpDest.add(Utils.translate(rank-1, file-1));
-                tmpDest.add(Utils.translate(rank-1, file+1));
-                // Special Case: In default spot.
-                if (rank == 6){ tmpDest.add(Utils.translate(rank+2, file)); }
-            }
-            break;
-        default:
-            break;
+        ArrayList<String> result = new ArrayList<String>();
+        for (long dest = getPossibleDestinations(); dest != 0; dest &= dest - 1){
+            result.add(Square.name(Long.numberOfTrailingZeros(dest)));
         }
-
-        src = Utils.translate(rank, file);
-        for (String d : tmpDest){
-            if (Chess.game.tryMove(src, d)){ result.add(d); }
-        }
-
         return result;
     }
 }
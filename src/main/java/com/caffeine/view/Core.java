@@ -53,7 +53,8 @@ public class Core {
 
     // Keep Track of legal moves and whether or not to show them.
     public static boolean showLegalMoves = false;
-    public static ArrayList<String> possibleMoves = new ArrayList<String>();
+    // Squares highlighted as legal destinations, one bit per rank * 8 + file
+    public static long possibleMoves = 0L;
 
 
     /**
@@ -113,18 +114,26 @@ public class Core {
         changeMode.setName("menuChangeMode");
         JMenuItem undo = new JMenuItem("Undo last move");
         undo.setName("menuUndo");
+        JMenuItem redo = new JMenuItem("Redo move");
+        redo.setName("menuRedo");
         setMoveTimer = new JMenuItem("Set move timer");
         setMoveTimer.setName("menuSetMoveTimer");
         JMenuItem toggleShowLegalMoves = new JMenuItem("Show legal moves");
         toggleShowLegalMoves.setName("menuToggleShowLegalMoves");
+        JMenuItem togglePonder = new JMenuItem("Think on my time");
+        togglePonder.setName("menuTogglePonder");
         menu.add(changeMode);
         menu.add(undo);
+        menu.add(redo);
         menu.add(setMoveTimer);
         menu.add(toggleShowLegalMoves);
+        menu.add(togglePonder);
         changeMode.addActionListener(new MenuListener());
         undo.addActionListener(new MenuListener());
+        redo.addActionListener(new MenuListener());
         setMoveTimer.addActionListener(new MenuListener());
         toggleShowLegalMoves.addActionListener(new MenuListener());
+        togglePonder.addActionListener(new MenuListener());
     }
 
     /**
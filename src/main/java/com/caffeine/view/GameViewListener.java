@@ -0,0 +1,41 @@
+package com.caffeine.view;
+
+import com.caffeine.Chess;
+import com.caffeine.logic.Game;
+import com.caffeine.logic.GameListener;
+
+import java.util.*;
+
+/**
+ *  Shows the game in the window: the board, captured pieces, move history,
+ *  status text and the end of game dialog. Events from any game other than
+ *  the one on screen are ignored.
+ */
+public class GameViewListener implements GameListener {
+
+    public void boardChanged(Game game) {
+        if (game == Chess.game) ViewUtils.refreshBoard();
+    }
+
+    public void squaresChanged(Game game) {
+        if (game == Chess.game) ViewUtils.refreshChangedSquares();
+    }
+
+    public void capturesChanged(Game game, String capturedByWhite, String capturedByBlack) {
+        if (game != Chess.game) return;
+        Core.takenPanel.setCaptByWhite(capturedByWhite);
+        Core.takenPanel.setCaptByBlack(capturedByBlack);
+    }
+
+    public void moveHistoryChanged(Game game, List<String> history) {
+        if (game == Chess.game) Core.historyPanel.updateMoveHistory(history);
+    }
+
+    public void statusChanged(Game game, String message) {
+        if (game == null || game == Chess.game) Core.statusPanel.setText(message);
+    }
+
+    public void gameEnded(Game game, int result) {
+        if (game == Chess.game) ViewUtils.endGame(result);
+    }
+}
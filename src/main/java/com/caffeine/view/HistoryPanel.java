@@ -3,6 +3,7 @@ package com.caffeine.view;
 import com.caffeine.Chess;
 
 import java.util.*;
+import java.util.List;
 import java.io.*;
 import javax.swing.*;
 import java.awt.event.*;
@@ -33,7 +34,7 @@ public class HistoryPanel extends JPanel {
      *
      * @param moveHistory  The ArrayList holding the moves to be displayed
      */
-    public void updateMoveHistory(ArrayList<String> moveHistory) {
+    public void updateMoveHistory(List<String> moveHistory) {
         int currMoveNum = 1;
         String currHalfMove = null;
 
@@ -72,6 +72,18 @@ public class MenuListener implements ActionListener {
             statusPanel.setText("Undo last move");
             Chess.game.undoMove();
 
+        } else if (menuText.equals("Redo move")) {
+
+            statusPanel.setText("Redo move");
+            if (!Chess.game.redoMove()) return;
+            int gameState = Chess.game.getGameEndStatus();
+            if (gameState != 0) {
+                Chess.game.endGame(gameState);
+            } else if (Chess.game.whiteActive() != Chess.game.userWhite()) {
+                // Redone up to the end of the line with the CPU to move
+                ViewUtils.requestCpuMove();
+            }
+
         } else if (menuText.equals("Set move timer")) {
 
             if (Chess.game.gameStarted) {
@@ -103,6 +115,19 @@ public class MenuListener implements ActionListener {
                 Core.showLegalMoves = true;
             }
 
+        } else if (menuText.contains("Think on my time")){
+
+            // Off the EDT, since a CPU search holds the engine until it ends
+            if (menuText.contains("\u2713")){
+                menuItem.setText("Think on my time");
+                statusPanel.setText("CPU will wait for your moves.");
+                Chess.engine.setPonderAsync(false);
+            } else {
+                menuItem.setText("\u2713 Think on my time");
+                statusPanel.setText("CPU will think while you do.");
+                Chess.engine.setPonderAsync(true);
+            }
+
         }
 
     }
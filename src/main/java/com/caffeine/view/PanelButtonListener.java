@@ -57,12 +57,12 @@ public class PanelButtonListener implements ActionListener {
                 if (fileName.toLowerCase().endsWith(".pgn")){
 
                     statusPanel.setText("Loading game from file: " + fileName.toLowerCase());
-                    FileManager.load(fileName.toLowerCase());
+                    load(fileName.toLowerCase());
 
                 } else{
 
                     statusPanel.setText("Loading game from file: " + fileName.toLowerCase() + ".pgn");
-                    FileManager.load(fileName.toLowerCase()+".pgn");
+                    load(fileName.toLowerCase()+".pgn");
 
                 }
             }
@@ -74,10 +74,10 @@ public class PanelButtonListener implements ActionListener {
                     String fileName = fc.getSelectedFile().getName();
                     if (fileName.toLowerCase().endsWith(".pgn")){
                         statusPanel.setText("Saving game to file: " + fileName.toLowerCase());
-                        FileManager.save(fileName.toLowerCase());
+                        save(fileName.toLowerCase());
                     } else{
                         statusPanel.setText("Saving game to file: " + fileName.toLowerCase() + ".pgn");
-                        FileManager.save(fileName.toLowerCase()+".pgn");
+                        save(fileName.toLowerCase()+".pgn");
                     }
                 }
             } else {
@@ -126,20 +126,13 @@ public class PanelButtonListener implements ActionListener {
                 case -1:
                     return;
                 case 0:
-                    Chess.game = new Game();
+                    Chess.game = new Game(Chess.engine, Chess.listener);
                     Chess.game.startGame();
                     Chess.game.setSide("black");
                     statusPanel.setText("Game Started - Now playing as Black");
-                    // CPU moves immediately
-                    String cpuMove = Chess.game.cpuMove();
-                    String[] moveData = cpuMove.split("");
-                    moveData[0] = moveData[0].toUpperCase();
-                    moveData[2] = moveData[2].toUpperCase();
-                    Core.statusPanel.setText("CPU Move: " + moveData[0] + "" + moveData[1] + "," +
-                                                moveData[2] + "" + moveData[3]);
                     break;
                 case 1:
-                    Chess.game = new Game();
+                    Chess.game = new Game(Chess.engine, Chess.listener);
                     Chess.game.startGame();
                     Chess.game.setSide("white");
                     statusPanel.setText("Game Started - Now playing as White");
@@ -151,6 +144,8 @@ public class PanelButtonListener implements ActionListener {
             ViewUtils.refreshBoard();
             ViewUtils.clearTakenPanel();
             ViewUtils.clearHistoryPanel();
+            // CPU moves immediately, on its clock
+            if (!Chess.game.userWhite()) ViewUtils.requestCpuMove();
 
         } else if (button.getText().equals("Tutorial")) {
 
@@ -285,7 +280,7 @@ public class PanelButtonListener implements ActionListener {
             BoardListener.selected = null;
 
             // Place pieces in correct board locations
-            for (Piece p : Chess.game.pieces) {
+            for (Piece p : Chess.game.getPieces()) {
                 int rank = p.getRank();
                 int file = p.getFile();
                 if (rank == -1) continue;
@@ -318,4 +313,39 @@ public class PanelButtonListener implements ActionListener {
             Core.takenPanel.add(takenComponents[1]);
         }
     }
+
+    /**
+     *  Saves the game on screen along with the time left on its timer.
+     *
+     *  @param fileName  The pgn file to be written
+     */
+    private void save(String fileName) {
+        Chess.game.setTag("Time", Integer.toString(Core.timerPanel.getTimeLeft()));
+        if (!FileManager.save(Chess.game, fileName)) {
+            Core.statusPanel.setText("Unable to save to file.");
+        }
+    }
+
+    /**
+     *  Loads a saved game and puts it on screen.
+     *
+     *  @param fileName  The pgn file to be read
+     */
+    private void load(String fileName) {
+        Game loaded = FileManager.load(fileName, Chess.engine, Chess.listener);
+        if (loaded == null) return;
+        Chess.game = loaded;
+        Core.timerPanel.restartTimer();
+        ViewUtils.refreshBoard();
+        Core.takenPanel.setCaptByWhite(loaded.getCaptByWhite());
+        Core.takenPanel.setCaptByBlack(loaded.getCaptByBlack());
+        Core.historyPanel.updateMoveHistory(loaded.moveHistory);
+        if (loaded.getTag("Time") != null) {
+            Core.timerPanel.setTimeLeft(loaded.getTag("Time"));
+        } else {
+            // default to half hour left
+            Core.timerPanel.setTimeLeft("180000");
+        }
+        Core.timerPanel.resumeTimer();
+    }
 }
@@ -1,6 +1,8 @@
 package com.caffeine.view;
 
 import com.caffeine.Chess;
+import com.caffeine.logic.GameClock;
+import com.caffeine.logic.GameStatus;
 
 import java.io.*;
 import javax.swing.*;
@@ -8,7 +10,9 @@ import java.awt.event.*;
 import java.awt.*;
 
 /**
-* This custom JPanel displays the current game time.
+* This custom JPanel displays the current game time. The time itself is
+* kept by a GameClock shared with the game on screen, which also runs the
+* CPU's time while it thinks.
 */
 public class TimerPanel extends JPanel {
 
@@ -17,8 +21,8 @@ public class TimerPanel extends JPanel {
     centisecond, we cut off 1 zero */
     private static final int ONE_CENTISECOND = 10;
     private static final int HALF_HOUR = 180000;
-    private int countDown = 0;
     private int intialCountDown = 0;
+    private GameClock clock;
     private Timer timer;
 
     private Boolean timeOut = false;
@@ -41,34 +45,53 @@ public class TimerPanel extends JPanel {
 
         //  default to 30 minutes to count down
         intialCountDown = HALF_HOUR;
-        countDown = HALF_HOUR;
+        clock = newClock();
         timer = new Timer(ONE_CENTISECOND, new TimerListener());
         timer.start();
         timerLabel.setText("Timer set to " +
-            String.format("%02d", countDown / 6000) + " minutes");
+            String.format("%02d", intialCountDown / 6000) + " minutes");
 
     }
 
+    /**
+     * A clock giving both sides the initial time, and the CPU no more
+     * than the user.
+     */
+    private GameClock newClock() {
+        return new GameClock(intialCountDown * 10L, 0, 0);
+    }
+
+    /**
+     * Whether the user plays white in the game on screen.
+     */
+    private boolean userWhite() {
+        return Chess.game == null || Chess.game.userWhite();
+    }
+
     /**
      * Every 1/100th of a second (centisecond) this ActionListener
-     * decrements the timer.
+     * shows the time left and checks whether either side has run out.
      */
     private class TimerListener implements ActionListener {
         @Override
         public void actionPerformed(ActionEvent e) {
 
-            if(!Chess.game.gameStarted) {
+            if(Chess.game == null || !Chess.game.gameStarted || Chess.game.getClock() != clock) {
                 // do nothing
             } else if (paused) {
                 //  do nothing
-            } else if(countDown > 0) {
-                countDown--;
-                timerLabel.setText("Time remaining: " + formatTime(countDown));
-            } else {
+            } else if (clock.isFlagged(userWhite())) {
                 timer.stop();
                 timeOut = true;
                 timerLabel.setText("Time's Out!");
-                Chess.game.endGame(5); // result = 5, timer end
+                Chess.game.endGame(GameStatus.TIME_OUT);
+            } else if (clock.isFlagged(!userWhite())) {
+                timer.stop();
+                timerLabel.setText("CPU's Time's Out!");
+                Chess.game.endGame(userWhite() ? GameStatus.WHITE_WINS : GameStatus.BLACK_WINS);
+            } else {
+                timerLabel.setText("You " + formatTime(getTimeLeft())
+                    + "  CPU " + formatTime((int) (clock.getRemaining(!userWhite()) / 10)));
             }
 
         }
@@ -88,12 +111,15 @@ public class TimerPanel extends JPanel {
     }
 
     /**
-     * Restarts the timer with its current configuration.
+     * Restarts the timer with its current configuration, on a fresh
+     * clock for the game on screen.
      */
     public void restartTimer() {
         timeOut = false;
         timer.restart();
-        countDown = intialCountDown;
+        clock = newClock();
+        if (paused) clock.pause();
+        if (Chess.game != null) Chess.game.setClock(clock);
     }
 
     /**
@@ -113,16 +139,18 @@ public class TimerPanel extends JPanel {
      */
     public void setTimer(int minutes) {
         intialCountDown = minutes * 6000;
-        countDown = intialCountDown;
+        clock.setRemaining(true, intialCountDown * 10L);
+        clock.setRemaining(false, intialCountDown * 10L);
         timerLabel.setText("Timer set to " +
-            String.format("%02d", countDown / 6000) + " minutes");
+            String.format("%02d", intialCountDown / 6000) + " minutes");
     }
 
     /**
-     * Pauses the timer.
+     * Pauses the timer, for both sides.
      */
     public void pauseTimer() {
         paused = true;
+        clock.pause();
     }
 
     /**
@@ -130,23 +158,24 @@ public class TimerPanel extends JPanel {
      */
     public void resumeTimer() {
         paused = false;
+        clock.resume();
     }
 
     /**
-     * Get the current amount of time left,
+     * Get the user's current amount of time left,
      * in centiseconds.
      * @return The number of centiseconds left in the game
      */
     public int getTimeLeft() {
-        return countDown;
+        return (int) Math.max(0, clock.getRemaining(userWhite()) / 10);
     }
 
     /**
-     * Set the timer to the specified number of centiseconds.
+     * Set the user's timer to the specified number of centiseconds.
      * @param  centiseconds How long the timer should last
      */
     public void setTimeLeft(String centiseconds) {
-        countDown = Integer.parseInt(centiseconds);
+        clock.setRemaining(userWhite(), Integer.parseInt(centiseconds) * 10L);
     }
 
 }
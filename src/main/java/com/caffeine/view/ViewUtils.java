@@ -1,13 +1,15 @@
 package com.caffeine.view;
 
 import com.caffeine.Chess;
+import com.caffeine.logic.Game;
 import com.caffeine.logic.Piece;
 import com.caffeine.logic.FileManager;
-import com.caffeine.logic.Utils;
+import com.caffeine.logic.Square;
 
 import java.util.*;
 import javax.swing.JOptionPane;
 import javax.swing.JFileChooser;
+import javax.swing.SwingUtilities;
 
 public class ViewUtils {
     /**
@@ -27,6 +29,52 @@ public class ViewUtils {
         hidePossibilities();
     }
 
+    /**
+     * Refreshes only the board squares changed by the last move
+     */
+    public static void refreshChangedSquares() {
+        for (int square : Chess.game.getChangedSquares()) {
+            int rank = square / 8;
+            int file = square % 8;
+            Piece currPiece = Chess.game.getPieceMatching(rank, file);
+            if (currPiece != null) {
+                Core.squares[7-rank][file].setPiece(currPiece);
+            } else {
+                Core.squares[7-rank][file].removePiece();
+            }
+        }
+        hidePossibilities();
+    }
+
+    /**
+     * Asks the engine for the CPU's reply in the background, so the window
+     * stays responsive while it thinks. The move is shown once it arrives,
+     * unless that game has been replaced or ended in the meantime.
+     */
+    public static void requestCpuMove() {
+        final Game game = Chess.game;
+        game.requestCpuMove().whenComplete((move, error) -> SwingUtilities.invokeLater(() -> {
+            if (error != null || Chess.game != game || !game.gameStarted) {
+                game.applyCpuMove(null);
+                return;
+            }
+            String cpuMove = game.applyCpuMove(move);
+            if (cpuMove != null) {
+                String[] moveData = cpuMove.split("");
+                moveData[0] = moveData[0].toUpperCase();
+                moveData[2] = moveData[2].toUpperCase();
+                Core.statusPanel.setText("CPU Move: " + moveData[0] + "" + moveData[1] + "," +
+                                                moveData[2] + "" + moveData[3]);
+            }
+            refreshChangedSquares();
+            //Check that game has not ended
+            int gameState = game.getGameEndStatus();
+            if (gameState != 0) {
+                game.endGame(gameState);
+            }
+        }));
+    }
+
     /**
      * Clears the Taken Panel of both black and white captures
      */
@@ -49,12 +97,11 @@ public class ViewUtils {
         // Un-highlight all previously highlighted BoardSquares that were
         // valid positions.
         if (Core.showLegalMoves){
-            for (String move : Core.possibleMoves){
-                Integer[] raf = Utils.translate(move); // Rank And File
-                BoardSquare square = Core.squares[7-raf[0]][raf[1]];
-                square.resetSquare();
+            for (long dest = Core.possibleMoves; dest != 0; dest &= dest - 1){
+                int sq = Long.numberOfTrailingZeros(dest);
+                Core.squares[7-Square.rank(sq)][Square.file(sq)].resetSquare();
             }
-            Core.possibleMoves.clear();
+            Core.possibleMoves = 0L;
         }
     }
 
@@ -0,0 +1,70 @@
+// First-Party Imports
+import java.util.*;
+
+// Third-Party Imports
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+// Local Imports
+import com.caffeine.engine.BestMoveCache;
+import com.caffeine.engine.SearchResult;
+
+public class BestMoveCacheTest {
+
+    private static SearchResult result(String move){
+        return new SearchResult(move, null, 0, false, 1, Arrays.asList(move));
+    }
+
+    @Test
+    public void testParseSearchOutput(){
+        SearchResult result = SearchResult.parse(Arrays.asList(
+            "info depth 1 seldepth 1 multipv 1 score cp 20 nodes 20 nps 10000 tbhits 0 time 2 pv d2d4",
+            "info depth 2 seldepth 2 multipv 1 score cp 77 nodes 60 nps 30000 tbhits 0 time 2 pv e2e4 e7e5",
+            "info depth 2 currmove b1c3 currmovenumber 3",
+            "bestmove e2e4 ponder e7e5"));
+        assertTrue(result.getBestMove().equals("e2e4"));
+        assertTrue(result.getPonder().equals("e7e5"));
+        assertTrue(result.getScore() == 77 && !result.isMate() && result.getDepth() == 2);
+        assertTrue(result.getPv().equals(Arrays.asList("e2e4", "e7e5")));
+
+        result = SearchResult.parse(Arrays.asList(
+            "info depth 5 seldepth 3 multipv 1 score mate -1 nodes 90 nps 9000 tbhits 0 time 10 pv g8h8 h1h8",
+            "bestmove g8h8"));
+        assertTrue(result.isMate() && result.getScore() == -1);
+        assertTrue(result.getPonder() == null);
+
+        result = SearchResult.parse(Arrays.asList("info depth 0 score mate 0", "bestmove (none)"));
+        assertTrue(result.getBestMove().equals("(none)") && result.getPv().isEmpty());
+    }
+
+    @Test
+    public void testHitsAndMisses(){
+        BestMoveCache cache = new BestMoveCache();
+        assertTrue(cache.get(42L, "movetime 100") == null);
+        cache.put(42L, "movetime 100", result("e2e4"));
+        assertTrue(cache.get(42L, "movetime 100").getBestMove().equals("e2e4"));
+
+        // The same position under a different limit is a different search
+        assertTrue(cache.get(42L, "movetime 500") == null);
+        assertTrue(cache.getHits() == 1 && cache.getMisses() == 2);
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEviction(){
+        BestMoveCache cache = new BestMoveCache(2, 0);
+        cache.put(1L, "movetime 1", result("a2a3"));
+        cache.put(2L, "movetime 1", result("b2b3"));
+        cache.get(1L, "movetime 1");
+        cache.put(3L, "movetime 1", result("c2c3"));
+        assertTrue(cache.size() == 2);
+        assertTrue(cache.get(2L, "movetime 1") == null);
+        assertTrue(cache.get(1L, "movetime 1") != null);
+
+        // A byte cap holds the estimate under it
+        SearchResult one = result("d2d4");
+        cache = new BestMoveCache(0, one.estimatedBytes() * 3);
+        for (long key = 0; key < 10; key++){ cache.put(key, "movetime 1", result("d2d4")); }
+        assertTrue(cache.size() == 3);
+        assertTrue(cache.byteCount() <= one.estimatedBytes() * 3);
+    }
+}
@@ -7,7 +7,10 @@ import static org.junit.Assert.*;
 import org.apache.commons.lang3.StringUtils;
 
 // Local Imports
+import com.caffeine.engine.CommandBatch;
 import com.caffeine.engine.Core;
+import com.caffeine.engine.SearchLimit;
+import com.caffeine.engine.SearchResult;
 
 public class CoreTest {
 
@@ -143,4 +146,314 @@ public class CoreTest {
         for (int i = 0; i < 10; i++){ moveTest = engine.cpuMove(0); }
         if (!moveTest.equals("(none)")){ fail(); }
     }
+
+    @Test
+    public void testCoreGetLegalMoves(){
+        Core engine = new Core();
+
+        engine.setFEN("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1");
+        ArrayList<String> moves = engine.getLegalMoves();
+        assertTrue(moves.size() == 20);
+        assertTrue(moves.contains("e2e4") && moves.contains("g1f3"));
+
+        // Promotions are listed once per piece type
+        engine.setFEN("k7/4P3/8/8/8/8/8/K7 w - - 0 1");
+        moves = engine.getLegalMoves();
+        assertTrue(moves.contains("e7e8q") && moves.contains("e7e8n"));
+        assertFalse(moves.contains("e7e8"));
+
+        // Unknown board after a raw position command
+        engine.write("position fen 7k/8/8/8/8/8/8/K6r w - - 0 1");
+        moves = engine.getLegalMoves();
+        assertTrue(moves.size() == 2 && moves.contains("a1a2") && moves.contains("a1b2"));
+    }
+
+    @Test
+    public void testCorePerft(){
+        Core engine = new Core();
+
+        engine.setFEN("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1");
+        LinkedHashMap<String, Long> divide = engine.perft(2);
+
+        long nodes = 0;
+        for (long n : divide.values()){ nodes += n; }
+        assertTrue(divide.size() == 48);
+        assertTrue(nodes == 2039);
+    }
+
+    @Test
+    public void testCoreAsync(){
+        Core engine = new Core();
+
+        try {
+            engine.setFEN("7k/8/8/4p3/3P4/8/8/K7 w - - 0 1");
+            String fen = engine.getFENAsync().get();
+            assertTrue(fen.equals("7k/8/8/4p3/3P4/8/8/K7 w - - 0 1"));
+            assertTrue(engine.getBestMoveAsync(500).get().equals("d4e5"));
+
+            // Requests run in the order they were made
+            engine.cpuMoveAsync(100);
+            fen = engine.getFENAsync().get();
+            assertTrue(fen.startsWith("7k/8/8/4P3/8/8/8/K7 b"));
+        } catch (Exception e){
+            fail();
+        }
+
+        // A long search can be cut short
+        engine.setFEN("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1");
+        java.util.concurrent.CompletableFuture<String> search = engine.getBestMoveAsync(60000);
+        long start = System.currentTimeMillis();
+        engine.stop();
+        assertTrue(search.isCancelled());
+        engine.getFEN();
+        assertTrue(System.currentTimeMillis() - start < 10000);
+
+        // A CPU move cut short is not played
+        java.util.concurrent.CompletableFuture<String> move = engine.cpuMoveAsync(60000);
+        engine.stop();
+        assertTrue(move.isCancelled());
+        assertTrue(engine.getFEN().startsWith("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w"));
+    }
+
+    @Test
+    public void testCoreShadowPosition(){
+        Core engine = new Core();
+
+        // Raw position commands are followed locally
+        engine.write("position startpos moves e2e4 e7e5 g1f3");
+        assertTrue(engine.getFEN().equals("rnbqkbnr/pppp1ppp/8/4p3/4P3/5N2/PPPP1PPP/RNBQKB1R b KQkq - 1 2"));
+        assertTrue(engine.verify());
+
+        // Stockfish stops at the first illegal move, and so do we
+        engine.write("position startpos moves e2e4 e2e4 d7d5");
+        assertTrue(engine.getFEN().equals("rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq - 0 1"));
+        assertTrue(engine.verify());
+
+        engine.setFEN("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1");
+        assertTrue(engine.getCheckers().equals("Checkers:"));
+        for (int i = 0; i < 12; i++){
+            if (engine.cpuMove(10).equals("(none)")){ break; }
+            assertTrue(engine.verify());
+        }
+
+        engine.setFEN("4k3/8/8/8/8/5n2/8/R3K2R w KQ - 0 1");
+        assertTrue(engine.getCheckers().equals("Checkers: f3"));
+        engine.setDebug(true);
+        assertTrue(engine.getFEN().equals("4k3/8/8/8/8/5n2/8/R3K2R w KQ - 0 1"));
+    }
+
+    @Test
+    public void testCoreTakeBack(){
+        Core engine = new Core();
+
+        engine.setFEN("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1");
+        assertTrue(engine.takeBack() == false);
+
+        // Castling, en passant and a capture, then all the way back
+        engine.move("e1g1");
+        engine.move("c7c5");
+        engine.move("d5c6");
+        engine.move("h3g2");
+        assertTrue(engine.verify());
+        for (int i = 0; i < 4; i++){
+            assertTrue(engine.takeBack());
+            assertTrue(engine.verify());
+        }
+        assertTrue(engine.takeBack() == false);
+        assertTrue(engine.getFEN().equals("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1"));
+
+        // The engine searches from the position taken back to
+        engine.move("e2a6");
+        assertTrue(engine.takeBack());
+        assertTrue(!engine.cpuMove(10).equals("(none)"));
+        assertTrue(engine.verify());
+    }
+
+    @Test
+    public void testCoreSearchCache(){
+        Core engine = new Core();
+
+        engine.setFEN("7k/8/8/4p3/3P4/8/8/K7 w - - 0 1");
+        SearchResult first = engine.search(300);
+        assertTrue(first.getBestMove().equals("d4e5"));
+        assertTrue(first.getPv().get(0).equals("d4e5"));
+
+        // Back to the same board, even by another route, is answered at once
+        engine.move("d4e5");
+        engine.setFEN("7k/8/8/4p3/3P4/8/8/K7 w - - 3 9");
+        long start = System.currentTimeMillis();
+        assertTrue(engine.search(300) == first);
+        assertTrue(System.currentTimeMillis() - start < 300);
+        assertTrue(engine.getBestMoveCache().getHits() == 1);
+    }
+
+    @Test
+    public void testCoreSearchLimits(){
+        Core engine = new Core();
+
+        // A depth limit stops at that depth however fast the machine is
+        SearchResult shallow = engine.search(SearchLimit.depth(3));
+        assertTrue(shallow.getDepth() == 3);
+        assertTrue(engine.getLegalMoves().contains(shallow.getBestMove()));
+
+        // Weakened searches still play legal moves, and a rating falls back
+        // on Skill Level when Stockfish has no UCI_LimitStrength
+        assertTrue(!engine.hasOption("UCI_LimitStrength") && engine.hasOption("Skill Level"));
+        String weak = engine.cpuMove(SearchLimit.nodes(2000).withElo(1400));
+        assertTrue(!weak.equals("(none)"));
+        assertTrue(!engine.cpuMove(SearchLimit.depth(4).withSkillLevel(0)).equals("(none)"));
+        assertTrue(!engine.cpuMove(SearchLimit.depth(4)).equals("(none)"));
+        assertTrue(engine.verify());
+    }
+
+    @Test
+    public void testCorePonder(){
+        Core engine = new Core();
+        engine.setPonder(true);
+        SearchLimit limit = SearchLimit.movetime(300);
+
+        // A hit: the search started on the user's time is answered at once
+        engine.move("e2e4");
+        engine.cpuMove(limit);
+        String expected = engine.getPonderMove();
+        assertTrue(expected != null && engine.getLegalMoves().contains(expected));
+        try { Thread.sleep(400); } catch (InterruptedException e){ }
+        assertTrue(engine.move(expected));
+        assertTrue(engine.getPonderMove() == null);
+        long start = System.currentTimeMillis();
+        String reply = engine.cpuMove(limit);
+        assertTrue(System.currentTimeMillis() - start < 200);
+        assertTrue(!reply.equals("(none)"));
+        assertTrue(engine.verify());
+
+        // A miss: the ponder search is dropped and the board stays right
+        String other = null;
+        for (String move : engine.getLegalMoves()){
+            if (!move.equals(engine.getPonderMove())){ other = move; break; }
+        }
+        assertTrue(engine.move(other));
+        assertTrue(!engine.cpuMove(limit).equals("(none)"));
+        assertTrue(engine.verify());
+
+        // Taking back stops pondering too
+        assertTrue(engine.takeBack());
+        assertTrue(engine.getPonderMove() == null && engine.verify());
+        engine.setPonder(false);
+        assertTrue(!engine.cpuMove(limit).equals("(none)") && engine.getPonderMove() == null);
+    }
+
+    @Test
+    public void testCoreRepliesDoNotMix(){
+        Core engine = new Core();
+
+        // A search nobody reads while other requests are answered
+        engine.write("go depth 12");
+        assertTrue(engine.verify());
+        assertTrue(engine.perft(1).size() == 20);
+        assertTrue(engine.getConfig().containsKey("Hash"));
+
+        // Its late "bestmove" is not taken for the next search's
+        engine.write("position fen 7k/8/6K1/8/8/8/8/R7 w - - 0 1");
+        assertTrue(engine.getBestMove(SearchLimit.depth(4)).equals("a1a8"));
+        assertTrue(engine.verify());
+    }
+
+    @Test
+    public void testCoreDeadlines(){
+        Core engine = new Core();
+        engine.setDeadlines(200, 1000);
+
+        // A search that never ends on its own is stopped or replaced in time
+        engine.write("go infinite");
+        long start = System.currentTimeMillis();
+        String move = engine.getBestMove(100);
+        assertTrue(System.currentTimeMillis() - start < 3000);
+        assertTrue(engine.getLegalMoves().contains(move));
+        assertTrue(engine.verify());
+    }
+
+    @Test
+    public void testCoreRestartsDeadEngine(){
+        Core engine = new Core();
+        assertTrue(engine.move("e2e4"));
+        assertTrue(engine.move("e7e5"));
+        String fen = engine.getFEN();
+
+        // Stockfish exits behind the Core's back
+        engine.write("quit");
+        for (int i = 0; i < 50 && engine.getRestarts() == 0; i++){
+            try { Thread.sleep(100); } catch (InterruptedException e){ }
+        }
+        assertTrue(engine.getRestarts() == 1);
+
+        // The new one is on the same board
+        assertTrue(engine.getFEN().equals(fen));
+        assertTrue(engine.verify());
+        assertTrue(engine.getLegalMoves().contains(engine.getBestMove(100)));
+    }
+
+    @Test
+    public void testCoreCommandBatch(){
+        Core engine = new Core();
+
+        // One round trip sets the board and reads it back
+        ArrayList<String> lines = engine.send(new CommandBatch("position startpos moves e2e4", "d"));
+        String fen = "rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq - 0 1";
+        assertTrue(lines.contains("Fen: " + fen));
+        assertTrue(engine.getFEN().equals(fen));
+
+        // Moves made locally go out ahead of the batch
+        assertTrue(engine.move("e7e5"));
+        lines = engine.send(new CommandBatch().add("setoption name Hash value 16").add("d"));
+        assertTrue(lines.contains("Fen: " + engine.getFEN()));
+        assertTrue(engine.verify());
+
+        // A search does not end at "readyok"
+        boolean rejected = false;
+        try {
+            new CommandBatch("go depth 1");
+        } catch (IllegalArgumentException e){
+            rejected = true;
+        }
+        assertTrue(rejected);
+    }
+
+    @Test
+    public void testCoreSetFENKeepsHistory(){
+        Core engine = new Core();
+        assertTrue(engine.move("e2e4"));
+        String afterE4 = engine.getFEN();
+        assertTrue(engine.move("e7e5"));
+        assertTrue(engine.move("g1f3"));
+
+        // An earlier board of the game is reached by taking moves back
+        assertTrue(engine.setFEN(afterE4));
+        assertTrue(engine.getFEN().equals(afterE4));
+        assertTrue(engine.verify());
+        assertTrue(engine.takeBack());
+        assertTrue(engine.verify());
+
+        // Any other board starts over from itself
+        String fen = "7k/8/6K1/8/8/8/8/R7 w - - 0 1";
+        assertTrue(engine.setFEN(fen));
+        assertTrue(!engine.takeBack());
+        assertTrue(engine.getBestMove(SearchLimit.depth(4)).equals("a1a8"));
+    }
+
+    @Test
+    public void testCorePonderThenQuery(){
+        Core engine = new Core();
+        engine.setDeadlines(2000, Core.DEFAULT_SEARCH_MILLIS);
+        engine.setPonder(true);
+        assertTrue(engine.move("e2e4"));
+        engine.cpuMove(SearchLimit.movetime(200));
+        assertTrue(engine.getPonderMove() != null);
+
+        // Queries stop the ponder search rather than take its output
+        assertTrue(engine.getConfig().containsKey("Hash"));
+        assertTrue(engine.getPonderMove() == null);
+        assertTrue(!engine.read().contains("info"));
+        assertTrue(engine.getRestarts() == 0);
+        assertTrue(engine.verify());
+    }
 }
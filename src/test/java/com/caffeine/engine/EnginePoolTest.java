@@ -0,0 +1,67 @@
+// First-Party Imports
+import java.util.concurrent.TimeUnit;
+
+// Third-Party Imports
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+// Local Imports
+import com.caffeine.engine.Core;
+import com.caffeine.engine.EnginePool;
+
+public class EnginePoolTest {
+
+    private static final String START = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    @Test
+    public void testLeaseIsolatedInstances(){
+        EnginePool pool = new EnginePool(2, 0);
+        Core first = pool.lease();
+        Core second = pool.lease();
+        assertTrue(first != second);
+
+        first.move("e2e4");
+        assertTrue(second.getFEN().equals(START));
+        assertTrue(pool.liveCount() == 2);
+
+        try {
+            // Both are out, so a third caller has to wait
+            assertTrue(pool.tryLease(100, TimeUnit.MILLISECONDS) == null);
+        } catch (InterruptedException e){
+            fail();
+        }
+        pool.close();
+        pool.release(first);
+        pool.release(second);
+    }
+
+    @Test
+    public void testReleasedInstanceIsReset(){
+        EnginePool pool = new EnginePool(1, 0);
+        Core core = pool.lease();
+        core.setFEN("7k/8/8/4p3/3P4/8/8/K7 w - - 0 1");
+        core.move("d4e5");
+        pool.release(core);
+
+        Core again = pool.lease();
+        assertTrue(again == core);
+        assertTrue(again.getFEN().equals(START));
+        assertTrue(again.verify());
+        pool.release(again);
+        pool.close();
+    }
+
+    @Test
+    public void testIdleEviction(){
+        EnginePool pool = new EnginePool(2, 50);
+        pool.release(pool.lease());
+        assertTrue(pool.liveCount() == 1);
+        try {
+            Thread.sleep(500);
+        } catch (InterruptedException e){
+            fail();
+        }
+        assertTrue(pool.liveCount() == 0);
+        pool.close();
+    }
+}
@@ -0,0 +1,43 @@
+// Third-Party Imports
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+// Local Imports
+import com.caffeine.engine.LineRing;
+
+public class LineRingTest {
+
+    @Test
+    public void testBounded(){
+        LineRing ring = new LineRing(3);
+        assertTrue(ring.capacity() == 4);
+        for (int i = 0; i < 4; i++){ assertTrue(ring.offer(i, "line " + i)); }
+        assertTrue(!ring.offer(4, "line 4"));
+        assertTrue(ring.poll().equals("line 0") && ring.takenTag() == 0);
+        assertTrue(ring.offer(4, "line 4") && ring.size() == 4);
+        for (int i = 1; i <= 4; i++){
+            assertTrue(ring.poll().equals("line " + i) && ring.takenTag() == i);
+        }
+        assertTrue(ring.poll() == null);
+    }
+
+    @Test
+    public void testAcrossThreads() throws Exception {
+        final LineRing ring = new LineRing(64);
+        final int count = 200000;
+        Thread producer = new Thread(() -> {
+            for (int i = 0; i < count; i++){ ring.put(i, Integer.toString(i)); }
+        });
+        producer.start();
+        for (int i = 0; i < count; i++){
+            String line = ring.take(0);
+            assertTrue(line.equals(Integer.toString(i)) && ring.takenTag() == i);
+        }
+        producer.join();
+
+        // Nothing more is coming
+        long start = System.nanoTime();
+        assertTrue(ring.take(20000000L) == null);
+        assertTrue(System.nanoTime() - start >= 20000000L);
+    }
+}
@@ -0,0 +1,45 @@
+// Third-Party Imports
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+// Local Imports
+import com.caffeine.engine.SearchLimit;
+
+public class SearchLimitTest {
+
+    @Test
+    public void testGoArguments(){
+        assertTrue(SearchLimit.movetime(10).getGoArguments().equals("movetime 10"));
+        assertTrue(SearchLimit.depth(8).withNodes(50000).getGoArguments().equals("depth 8 nodes 50000"));
+
+        // Strength is not part of "go"
+        SearchLimit weak = SearchLimit.depth(5).withSkillLevel(3).withElo(1500);
+        assertTrue(weak.getGoArguments().equals("depth 5"));
+        assertTrue(weak.toString().equals("depth 5 skill 3 elo 1500"));
+        assertTrue(SearchLimit.depth(5).withSkillLevel(99).getSkillLevel() == SearchLimit.FULL_SKILL);
+
+        SearchLimit timed = SearchLimit.depth(12).withClock(60000, 0, 1000, 1000, 0);
+        assertTrue(timed.hasClock() && !SearchLimit.depth(12).hasClock());
+        assertTrue(timed.getGoArguments().equals("depth 12 wtime 60000 btime 1 winc 1000 binc 1000"));
+        assertTrue(SearchLimit.parse("wtime 3000 btime 2000 movestogo 5").getGoArguments()
+            .equals("wtime 3000 btime 2000 movestogo 5"));
+    }
+
+    @Test
+    public void testParse(){
+        SearchLimit limit = SearchLimit.parse(" nodes 20000  skill 0 depth 6 ");
+        assertTrue(limit.getNodes() == 20000 && limit.getDepth() == 6 && limit.getSkillLevel() == 0);
+        assertTrue(limit.equals(SearchLimit.parse(limit.toString())));
+        assertTrue(!limit.equals(SearchLimit.depth(6).withNodes(20000)));
+
+        String[] bad = { "depth", "depth five", "ply 5", "skill 3" };
+        for (String text : bad){
+            try {
+                SearchLimit.parse(text);
+                fail("Parsed " + text);
+            } catch (IllegalArgumentException e){
+                // Expected
+            }
+        }
+    }
+}
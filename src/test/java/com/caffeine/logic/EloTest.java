@@ -0,0 +1,47 @@
+// Third-Party Imports
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+// Local Imports
+import com.caffeine.logic.Elo;
+
+public class EloTest {
+
+    @Test
+    public void testDifferenceAndScoreAgree(){
+        assertTrue(Elo.difference(0.5) == 0.0);
+        assertTrue(Math.abs(Elo.difference(0.75) - 190.85) < 0.01);
+        assertTrue(Math.abs(Elo.expectedScore(Elo.difference(0.75)) - 0.75) < 1e-9);
+        assertTrue(Math.abs(Elo.expectedScore(-Elo.difference(0.75)) - 0.25) < 1e-9);
+    }
+
+    @Test
+    public void testInterval(){
+        double[] interval = Elo.interval(30, 20, 10);
+        assertTrue(interval[0] < interval[1] && interval[1] < interval[2]);
+        assertTrue(Math.abs(interval[1] - Elo.difference(40.0 / 60)) < 1e-9);
+
+        // Nothing to go on, or nothing but wins
+        double[] none = Elo.interval(0, 0, 0);
+        assertTrue(none[0] == 0.0 && none[1] == 0.0 && none[2] == 0.0);
+        assertTrue(Elo.interval(5, 0, 0)[1] == Double.POSITIVE_INFINITY);
+    }
+
+    @Test
+    public void testRatings(){
+        // Player 0 takes 75% from player 1, close to 191 Elo after the
+        // extra draws
+        double[][] points = {{ 0.0, 150.0 }, { 50.0, 0.0 }};
+        int[][] games = {{ 0, 200 }, { 200, 0 }};
+        double[] ratings = Elo.ratings(points, games);
+        assertTrue(Math.abs(ratings[0] - ratings[1] - Elo.difference(0.75)) < 5.0);
+        assertTrue(Math.abs(ratings[0] + ratings[1]) < 1e-6);
+
+        // A perfect score stays finite and on top
+        double[][] sweep = {{ 0.0, 10.0, 10.0 }, { 0.0, 0.0, 5.0 }, { 0.0, 5.0, 0.0 }};
+        int[][] played = {{ 0, 10, 10 }, { 10, 0, 10 }, { 10, 10, 0 }};
+        ratings = Elo.ratings(sweep, played);
+        assertTrue(!Double.isInfinite(ratings[0]) && ratings[0] > ratings[1]);
+        assertTrue(Math.abs(ratings[1] - ratings[2]) < 1e-6);
+    }
+}
@@ -0,0 +1,55 @@
+// Third-Party Imports
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+// Local Imports
+import com.caffeine.logic.FenCodec;
+import com.caffeine.logic.Perft;
+import com.caffeine.logic.Position;
+
+public class FenCodecTest {
+
+    @Test
+    public void testParse(){
+        int[] board = new int[64];
+        int[] state = new int[FenCodec.STATE_SIZE];
+        StringBuilder fen = new StringBuilder("  r3k2r/8/8/8/4Pp2/8/8/R3K2R b Kq e3 7 42 ");
+        assertTrue(FenCodec.parse(fen, board, state));
+        assertTrue(board[0] == Position.WHITE * 6 + Position.ROOK);
+        assertTrue(board[28] == Position.WHITE * 6 + Position.PAWN);
+        assertTrue(board[29] == Position.BLACK * 6 + Position.PAWN);
+        assertTrue(board[60] == Position.BLACK * 6 + Position.KING);
+        assertTrue(board[1] == Position.EMPTY);
+        assertTrue(state[FenCodec.SIDE] == Position.BLACK);
+        assertTrue(state[FenCodec.CASTLING] == (Position.WHITE_KINGSIDE | Position.BLACK_QUEENSIDE));
+        assertTrue(state[FenCodec.EN_PASSANT] == 20);
+        assertTrue(state[FenCodec.HALFMOVE] == 7);
+        assertTrue(state[FenCodec.FULLMOVE] == 42);
+
+        // Fields must be separated by single spaces, and nothing may follow
+        assertTrue(!FenCodec.isValid("8/8/8/8/8/8/8/8  w - - 0 1"));
+        assertTrue(!FenCodec.isValid("8/8/8/8/8/8/8/8 w - - 0 1 x"));
+        assertTrue(!FenCodec.isValid("8/8/8/8/8/8/8/8/ w - - 0 1"));
+        assertTrue(!FenCodec.isValid("8/8/8/8/8/8/8/8 w - - 0 99999999999"));
+        assertTrue(!FenCodec.isValid(null));
+    }
+
+    @Test
+    public void testRoundTrip(){
+        int[] board = new int[64];
+        int[] state = new int[FenCodec.STATE_SIZE];
+        StringBuilder out = new StringBuilder();
+        for (String[] reference : Perft.REFERENCE){
+            assertTrue(FenCodec.parse(reference[0], board, state));
+            out.setLength(0);
+            FenCodec.write(out, board, state[FenCodec.SIDE], state[FenCodec.CASTLING],
+                state[FenCodec.EN_PASSANT], state[FenCodec.HALFMOVE], state[FenCodec.FULLMOVE]);
+            assertTrue(out.toString().equals(reference[0]));
+
+            // Position writes the same FEN into a reused buffer
+            Position position = new Position(reference[0]);
+            out.setLength(0);
+            assertTrue(position.appendFEN(out).toString().equals(position.getFEN()));
+        }
+    }
+}
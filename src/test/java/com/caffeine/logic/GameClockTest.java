@@ -0,0 +1,61 @@
+// Third-Party Imports
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+// Local Imports
+import com.caffeine.logic.GameClock;
+
+public class GameClockTest {
+
+    private long now = 0;
+
+    private void advance(long millis){
+        now += millis * 1000000;
+    }
+
+    @Test
+    public void testOnlySideToMoveRuns(){
+        GameClock clock = new GameClock(60000, 1000, 0, () -> now);
+        assertTrue(!clock.isRunning());
+        advance(500);
+        assertTrue(clock.getRemaining(true) == 60000);
+
+        clock.start(true);
+        advance(2500);
+        assertTrue(clock.getRemaining(true) == 57500 && clock.getRemaining(false) == 60000);
+
+        // White's move: increment added, black's time runs
+        clock.press();
+        assertTrue(clock.getRemaining(true) == 58500 && !clock.isWhiteRunning());
+        advance(4000);
+        assertTrue(clock.getRemaining(false) == 56000);
+
+        clock.pause();
+        advance(10000);
+        clock.resume();
+        assertTrue(clock.getRemaining(false) == 56000);
+
+        clock.stop();
+        advance(60000);
+        assertTrue(clock.getRemaining(false) == 56000 && !clock.isFlagged(false));
+    }
+
+    @Test
+    public void testPeriodsAndFlags(){
+        GameClock clock = new GameClock(1000, 0, 2, () -> now);
+        assertTrue(clock.getMovesToGo(true) == 2);
+        clock.start(true);
+        advance(600);
+        clock.press();
+        assertTrue(clock.getMovesToGo(true) == 1);
+        clock.press();
+        advance(300);
+        clock.press();
+        // A new period after two moves
+        assertTrue(clock.getMovesToGo(true) == 2);
+        assertTrue(clock.getRemaining(true) == 1100);
+
+        advance(1200);
+        assertTrue(clock.isFlagged(false) && !clock.isFlagged(true));
+    }
+}
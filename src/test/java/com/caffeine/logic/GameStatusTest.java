@@ -0,0 +1,63 @@
+// Third-Party Imports
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+// Local Imports
+import com.caffeine.logic.GameStatus;
+import com.caffeine.logic.Position;
+import com.caffeine.logic.RepetitionTable;
+
+public class GameStatusTest {
+
+    private static GameStatus status(String fen){
+        return GameStatus.evaluate(new Position(fen), null);
+    }
+
+    @Test
+    public void testMateAndStalemate(){
+        GameStatus status = status("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1");
+        assertTrue(status.getResult() == GameStatus.ONGOING && status.getReason() == null);
+        assertTrue(status.getLegalMoveCount() == 20 && !status.isCheck());
+
+        // Fool's mate: White is mated
+        status = status("rnb1kbnr/pppp1ppp/8/4p3/6Pq/5P2/PPPPP2P/RNBQKBNR w KQkq - 1 3");
+        assertTrue(status.isCheckmate() && status.getResult() == GameStatus.BLACK_WINS);
+
+        // Back rank mate: Black is mated
+        status = status("R5k1/5ppp/8/8/8/8/8/6K1 b - - 1 1");
+        assertTrue(status.isCheckmate() && status.getResult() == GameStatus.WHITE_WINS);
+
+        status = status("7k/5Q2/6K1/8/8/8/8/8 b - - 0 1");
+        assertTrue(status.isStalemate() && status.getResult() == GameStatus.STALEMATE);
+    }
+
+    @Test
+    public void testDrawRules(){
+        assertTrue(status("4k3/8/8/8/8/8/4P3/4K3 w - - 100 80").isFiftyMove());
+        assertFalse(status("4k3/8/8/8/8/8/4P3/4K3 w - - 99 80").isFiftyMove());
+
+        // Mate on the hundredth halfmove still counts as mate
+        assertTrue(status("R5k1/5ppp/8/8/8/8/8/6K1 b - - 100 90").getResult() == GameStatus.WHITE_WINS);
+
+        assertTrue(status("4k3/8/8/8/8/8/8/4K3 w - - 0 1").isInsufficientMaterial());
+        assertTrue(status("4k3/8/8/8/8/8/8/4KN2 w - - 0 1").isInsufficientMaterial());
+        assertTrue(status("4kb2/8/8/8/8/8/8/2B1K3 w - - 0 1").isInsufficientMaterial()); // same color
+        assertFalse(status("4k1b1/8/8/8/8/8/8/2B1K3 w - - 0 1").isInsufficientMaterial()); // opposite colors
+        assertFalse(status("4k3/8/8/8/8/8/8/3NKN2 w - - 0 1").isInsufficientMaterial());
+        assertFalse(status("4k3/8/8/8/8/8/8/4K2R w - - 0 1").isInsufficientMaterial());
+
+        Position position = new Position("4k3/8/8/8/8/8/8/R3K3 w - - 0 1");
+        RepetitionTable repetitions = new RepetitionTable();
+        repetitions.increment(position.getKey());
+        String[] shuffle = {"a1a2", "e8d8", "a2a1", "d8e8"};
+        for (int round = 0; round < 2; round++){
+            for (String move : shuffle){
+                position.makeMove(position.parseMove(move));
+                repetitions.increment(position.getKey());
+            }
+        }
+        GameStatus status = GameStatus.evaluate(position, repetitions);
+        assertTrue(status.isThreefoldRepetition() && status.getResult() == GameStatus.DRAW);
+        assertTrue(status.getReason().equals("threefold repetition"));
+    }
+}
@@ -0,0 +1,139 @@
+// First-Party Imports
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Third-Party Imports
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+// Local Imports
+import com.caffeine.engine.Core;
+import com.caffeine.engine.EnginePool;
+import com.caffeine.logic.Game;
+import com.caffeine.logic.GameClock;
+import com.caffeine.logic.GameListener;
+import com.caffeine.logic.Piece;
+
+public class GameTest {
+
+    @Test
+    public void testHeadlessGame(){
+        final List<String> events = new ArrayList<String>();
+        GameListener listener = new GameListener() {
+            public void moveHistoryChanged(Game game, List<String> history) {
+                events.add("history " + history.size());
+            }
+            public void capturesChanged(Game game, String byWhite, String byBlack) {
+                events.add("captures" + byWhite);
+            }
+        };
+        Core engine = new Core();
+        Game game = new Game(engine, listener);
+        game.startGame();
+        assertTrue(game.getPieceCount(true) == 16 && game.getPieceCount(false) == 16);
+
+        // 1. e4 d5 2. exd5
+        assertTrue(game.move(1, 4, 3, 4));
+        assertTrue(game.move(6, 3, 4, 3));
+        assertTrue(!game.move(3, 4, 5, 4));
+        assertTrue(game.move(3, 4, 4, 3));
+        assertTrue(game.getPieceCount(false) == 15);
+        assertTrue(game.getPieceMatching(4, 3).getKind() == Piece.PAWN);
+        assertTrue(events.contains("history 3"));
+        assertTrue(events.contains("captures \u265F"));
+        assertTrue(engine.verify());
+
+        // Black to move, so only the capture is taken back
+        game.undoMove();
+        assertTrue(game.getPieceCount(false) == 16);
+        assertTrue(game.getCaptByWhite().equals(""));
+        assertTrue(game.moveHistory.size() == 2);
+        assertTrue(engine.verify());
+
+        assertTrue(game.redoMove());
+        assertTrue(game.getPieceCount(false) == 15);
+        assertTrue(!game.redoMove());
+        assertTrue(engine.verify());
+    }
+
+    @Test
+    public void testGamesRunSideBySide() throws Exception {
+        EnginePool pool = new EnginePool(2, 0);
+        ExecutorService threads = Executors.newFixedThreadPool(2);
+        List<Future<Integer>> results = new ArrayList<Future<Integer>>();
+        for (int i = 0; i < 2; i++){
+            final Core engine = pool.lease();
+            results.add(threads.submit(() -> {
+                Game game = new Game(engine, GameListener.NONE);
+                game.startGame();
+                for (int ply = 0; ply < 6 && game.getGameEndStatus() == 0; ply++){
+                    if (game.cpuMove() == null){ break; }
+                }
+                return game.moveHistory.size();
+            }));
+        }
+        for (Future<Integer> result : results){
+            assertTrue(result.get() > 0);
+        }
+        threads.shutdown();
+        pool.close();
+    }
+
+    @Test
+    public void testTimedGame(){
+        Game game = new Game(new Core(), GameListener.NONE);
+        GameClock clock = new GameClock(5000, 100, 0);
+        game.setSide("white");
+        game.startGame();
+        game.setClock(clock);
+        assertTrue(clock.isWhiteRunning());
+
+        assertTrue(game.move("e2e4"));
+        assertTrue(!clock.isWhiteRunning());
+        long userTime = clock.getRemaining(true);
+        assertTrue(userTime > 5000 && userTime <= 5100);
+
+        // The CPU thinks on its own time, and only for a share of it
+        assertTrue(game.cpuMove() != null);
+        assertTrue(clock.isWhiteRunning());
+        long cpuTime = clock.getRemaining(false);
+        assertTrue(cpuTime < 5100 && cpuTime > 2000);
+        assertTrue(clock.getRemaining(true) <= userTime);
+
+        game.endGame(1);
+        assertTrue(!clock.isRunning());
+    }
+
+    @Test
+    public void testCpuMoveOutOfStep(){
+        Core engine = new Core();
+        Game game = new Game(engine, GameListener.NONE);
+        game.startGame();
+
+        // A pawn each is taken, the game seeing only White's capture
+        assertTrue(game.move("e2e4"));
+        assertTrue(game.move("d7d5"));
+        assertTrue(game.move("e4d5"));
+
+        // The engine plays on a board the game never saw
+        assertTrue(engine.move("d8d5"));
+        assertTrue(engine.move("b1c3"));
+        assertTrue(game.applyCpuMove("b1c3").equals("b1c3"));
+
+        // Its board is the game's new start, with nothing before it and
+        // each capture counted once
+        assertTrue(game.getTag("FEN").equals(engine.getFEN()));
+        assertTrue(!game.whiteActive());
+        assertTrue(game.getCaptByWhite().trim().split(" ").length == 1);
+        assertTrue(game.getCaptByBlack().trim().split(" ").length == 1);
+        assertTrue(game.moveHistory.isEmpty());
+        assertTrue(!game.redoMove());
+        game.undoMove();
+        assertTrue(game.getTag("FEN").equals(engine.getFEN()));
+        assertTrue(game.move("e7e5"));
+        assertTrue(engine.verify());
+    }
+}
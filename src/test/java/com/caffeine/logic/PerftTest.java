@@ -0,0 +1,37 @@
+// First-Party Imports
+import java.util.LinkedHashMap;
+
+// Third-Party Imports
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+// Local Imports
+import com.caffeine.logic.Perft;
+import com.caffeine.logic.Position;
+
+public class PerftTest {
+
+    @Test
+    public void testReferencePositions(){
+        for (String[] reference : Perft.REFERENCE){
+            Position position = new Position(reference[0]);
+            long observed = Perft.perft(position, Integer.parseInt(reference[1]));
+            long expected = Long.parseLong(reference[2]);
+            if (observed != expected){
+                fail(String.format("%s: expected %d, found %d", reference[0], expected, observed));
+            }
+            // The position must be left as it was found
+            assertTrue(position.getFEN().equals(reference[0]));
+        }
+    }
+
+    @Test
+    public void testDivideMatchesPerft(){
+        Position position = new Position("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1");
+        LinkedHashMap<String, Long> divide = Perft.divide(position, 3);
+        assertTrue(divide.size() == 48);
+        assertTrue(divide.get("e1g1") == 2059L);
+        assertTrue(Perft.total(divide) == 97862L);
+        assertTrue(Perft.total(divide) == Perft.perft(position, 3));
+    }
+}
@@ -0,0 +1,36 @@
+// Third-Party Imports
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+// Local Imports
+import com.caffeine.logic.Piece;
+import com.caffeine.logic.Position;
+
+public class PieceTest {
+
+    @Test
+    public void testCodes(){
+        Piece knight = Piece.fromFEN('n', 7, 1);
+        assertTrue(knight.getKind() == Piece.KNIGHT && !knight.isWhite());
+        assertTrue(knight.getCode() == Position.BLACK * 6 + Position.KNIGHT);
+        assertTrue(knight.getRank() == 7 && knight.getFile() == 1);
+
+        Piece queen = Piece.fromCode(Position.WHITE * 6 + Position.QUEEN, 0, 3);
+        assertTrue(queen.getKind() == Piece.QUEEN && queen.isWhite());
+        assertTrue(Piece.fromFEN('x', 0, 0) == null);
+    }
+
+    @Test
+    public void testGlyphs(){
+        // Glyph constructors and codes agree, and glyphs are shared
+        Piece fromGlyph = new Piece("\u265F", "white", 1, 4);
+        Piece fromFEN = Piece.fromFEN('P', 1, 4);
+        assertTrue(fromGlyph.getKind() == Piece.PAWN);
+        assertTrue(fromGlyph.getType() == fromFEN.getType());
+
+        // Unknown types keep their name
+        Piece unknown = new Piece("test", "test", 0, 0);
+        assertTrue(unknown.getKind() == Piece.UNKNOWN && unknown.getType().equals("test"));
+        assertTrue(unknown.getCode() == -1);
+    }
+}
@@ -0,0 +1,156 @@
+// First-Party Imports
+import java.util.ArrayList;
+
+// Third-Party Imports
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+// Local Imports
+import com.caffeine.logic.Move;
+import com.caffeine.logic.Position;
+import com.caffeine.logic.RepetitionTable;
+
+public class PositionTest {
+
+    @Test
+    public void testStartingMoves(){
+        Position position = new Position("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1");
+        ArrayList<String> moves = position.getLegalMoves();
+        assertTrue(moves.size() == 20);
+        assertTrue(moves.contains("e2e4") && moves.contains("b1c3"));
+        assertFalse(position.inCheck());
+    }
+
+    @Test
+    public void testFENRoundTrip(){
+        final String fen = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+        assertTrue(new Position(fen).getFEN().equals(fen));
+
+        // En passant is only kept when a pawn can actually take
+        Position position = new Position("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1");
+        position.makeMove(position.parseMove("e2e4"));
+        assertTrue(position.getFEN().equals("rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq - 0 1"));
+    }
+
+    @Test
+    public void testMakeUnmakeRestoresPosition(){
+        final String fen = "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1";
+        Position position = new Position(fen);
+        int[] moves = new int[Position.MAX_MOVES];
+        int count = position.generateLegalMoves(moves);
+        for (int i = 0; i < count; i++){
+            position.makeMove(moves[i]);
+            position.unmakeMove(moves[i]);
+            if (!position.getFEN().equals(fen)){ fail("Unmake broke " + Move.toUci(moves[i])); }
+        }
+    }
+
+    @Test
+    public void testParseMove(){
+        Position position = new Position("k7/4P3/8/8/8/8/8/K7 w - - 0 1");
+        assertTrue(position.parseMove("e7e8q") != Move.NONE);
+        assertTrue(position.parseMove("E7E8N") != Move.NONE);
+        assertTrue(position.parseMove("e7e8") == Move.NONE); // must name the piece
+        assertTrue(position.parseMove("a1a3") == Move.NONE);
+        assertTrue(position.parseMove("z9z9") == Move.NONE);
+    }
+
+    @Test
+    public void testCheckmateAndStalemate(){
+        // Fool's mate
+        Position mate = new Position("rnb1kbnr/pppp1ppp/8/4p3/6Pq/5P2/PPPPP2P/RNBQKBNR w KQkq - 1 3");
+        assertTrue(mate.inCheck());
+        assertFalse(mate.hasLegalMoves());
+
+        Position stale = new Position("k7/8/1Q6/8/8/8/8/7K b - - 0 1");
+        assertFalse(stale.inCheck());
+        assertFalse(stale.hasLegalMoves());
+    }
+
+    @Test
+    public void testPinsAndEnPassant(){
+        // The e-file bishop is pinned and may only slide along the pin
+        Position pinned = new Position("4r2k/8/8/8/8/8/4B3/4K3 w - - 0 1");
+        for (String move : pinned.getLegalMoves()){
+            if (move.startsWith("e2")){ fail("Pinned bishop moved: " + move); }
+        }
+
+        // Taking en passant would expose the king along the rank
+        Position exposed = new Position("8/8/8/KPp4r/8/8/8/7k w - c6 0 1");
+        assertTrue(exposed.parseMove("b5c6") == Move.NONE);
+        Position open = new Position("8/8/8/1Pp4r/8/K7/8/7k w - c6 0 1");
+        assertTrue(open.parseMove("b5c6") != Move.NONE);
+    }
+
+    @Test
+    public void testPinnedEnPassantKey(){
+        // The only pawn that could take en passant is pinned along the
+        // rank, so the square does not make the position a different one
+        Position position = new Position("8/2p5/8/KP5r/8/8/8/7k b - - 0 1");
+        position.makeMove(position.parseMove("c7c5"));
+        String fen = "8/8/8/KPp4r/8/8/8/7k w - - 0 2";
+        assertTrue(position.getFEN().equals(fen));
+        assertTrue(position.getKey() == new Position(fen).getKey());
+        assertTrue(new Position("8/8/8/KPp4r/8/8/8/7k w - c6 0 2").getKey() == position.getKey());
+
+        // Once the pin is gone, it does
+        position = new Position("8/2p5/8/1P5r/K7/8/8/7k b - - 0 1");
+        position.makeMove(position.parseMove("c7c5"));
+        assertTrue(position.getFEN().equals("8/8/8/1Pp4r/K7/8/8/7k w - c6 0 2"));
+    }
+
+    @Test
+    public void testZobristKeys(){
+        // Keys updated move by move match keys built from scratch
+        Position position = new Position("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1");
+        long root = position.getKey();
+        int[] moves = new int[Position.MAX_MOVES];
+        int[] replies = new int[Position.MAX_MOVES];
+        int count = position.generateLegalMoves(moves);
+        for (int i = 0; i < count; i++){
+            position.makeMove(moves[i]);
+            int replyCount = position.generateLegalMoves(replies);
+            for (int j = 0; j < replyCount; j++){
+                position.makeMove(replies[j]);
+                if (position.getKey() != new Position(position.getFEN()).getKey()){
+                    fail("Key drifted after " + Move.toUci(moves[i]) + " " + Move.toUci(replies[j]));
+                }
+                position.unmakeMove(replies[j]);
+            }
+            position.unmakeMove(moves[i]);
+        }
+        assertTrue(position.getKey() == root);
+
+        // Move clocks do not matter, side to move and en passant do
+        long key = new Position("4k3/8/8/8/3pP3/8/8/4K3 b - e3 0 1").getKey();
+        assertTrue(key == new Position("4k3/8/8/8/3pP3/8/8/4K3 b - e3 7 40").getKey());
+        assertTrue(key != new Position("4k3/8/8/8/3pP3/8/8/4K3 b - - 0 1").getKey());
+        assertTrue(key != new Position("4k3/8/8/8/3pP3/8/8/4K3 w - e3 0 1").getKey());
+    }
+
+    @Test
+    public void testRepetitionCounts(){
+        Position position = new Position("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1");
+        RepetitionTable repetitions = new RepetitionTable(4);
+        int count = repetitions.increment(position.getKey());
+
+        // Knights out and back twice brings the start position round again
+        String[] shuffle = {"g1f3", "g8f6", "f3g1", "f6g8"};
+        for (int round = 0; round < 2; round++){
+            for (String move : shuffle){
+                position.makeMove(position.parseMove(move));
+                count = repetitions.increment(position.getKey());
+            }
+        }
+        assertTrue(count == 3);
+        assertTrue(repetitions.get(new Position("rnbqkbnr/pppppppp/8/8/8/2N5/PPPPPPPP/R1BQKBNR b KQkq - 1 1").getKey()) == 0);
+
+        repetitions.decrement(position.getKey());
+        assertTrue(repetitions.get(position.getKey()) == 2);
+
+        // Growing keeps every count
+        for (long key = 1; key <= 1000; key++){ repetitions.increment(key * 0x9E3779B97F4A7C15L); }
+        assertTrue(repetitions.get(position.getKey()) == 2);
+        assertTrue(repetitions.get(500 * 0x9E3779B97F4A7C15L) == 1);
+    }
+}
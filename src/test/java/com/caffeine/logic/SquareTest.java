@@ -0,0 +1,31 @@
+// Third-Party Imports
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+// Local Imports
+import com.caffeine.logic.Square;
+
+public class SquareTest {
+
+    @Test
+    public void testNames(){
+        for (int sq = 0; sq < 64; sq++){
+            assertTrue(Square.of(Square.rank(sq), Square.file(sq)) == sq);
+            assertTrue(Square.parse(Square.name(sq)) == sq);
+            assertTrue(Square.parse(Square.name(sq).toUpperCase()) == sq);
+            // Names are shared, not built on each call
+            assertTrue(Square.name(sq) == Square.name(sq));
+        }
+        assertTrue(Square.name(Square.of(3, 4)).equals("e4"));
+        assertTrue(Square.parse("e7e8q", 2) == Square.of(7, 4));
+    }
+
+    @Test
+    public void testInvalid(){
+        String[] invalid = { "i1", "a0", "a9", "`1", "11", "aa", "e", "e44", "", "á1" };
+        for (String name : invalid){
+            assertTrue(Square.parse(name) == Square.NONE);
+        }
+        assertTrue(Square.parse(null) == Square.NONE);
+    }
+}